@@ -0,0 +1,194 @@
+package crepes.buttr.pnut.deepqlearning;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import crepes.buttr.pnut.neuralnetwork.NetworkMetrics;
+
+/**
+ * Counters and timings collected by a Deep Q-Learning Network
+ * while metrics are enabled. The timings of the dynamic network
+ * itself are available through <code> getNetworkMetrics()
+ * </code>. The values are written by the thread using the
+ * network without any synchronization, so when they are read
+ * from another thread, such as through JMX, they may lag
+ * slightly behind.
+ * @see DeepQLearningNetwork#enableMetrics()
+ */
+public class DeepQLearningMetrics implements DeepQLearningMetricsMBean {
+
+	private NetworkMetrics networkMetrics;
+
+	private long numberOfDecisions;
+	private double epsilon;
+
+	private int replayBufferSize;
+	private int maxReplayBufferSize;
+
+	private long replaySamples;
+	private long replaySampleNanos;
+
+	private long targetNetworkSyncs;
+
+	private CopyOnWriteArrayList<DeepQLearningMetricsListener> listeners;
+
+	private ObjectName objectName;
+
+	protected DeepQLearningMetrics(NetworkMetrics networkMetrics) {
+
+		this.networkMetrics = networkMetrics;
+		this.listeners = new CopyOnWriteArrayList<DeepQLearningMetricsListener>();
+	}
+
+	protected void recordDecision(double epsilon) {
+
+		this.epsilon = epsilon;
+		numberOfDecisions++;
+	}
+
+	protected void recordReplayBufferSize(int replayBufferSize, int maxReplayBufferSize) {
+
+		this.replayBufferSize = replayBufferSize;
+		this.maxReplayBufferSize = maxReplayBufferSize;
+	}
+
+	protected void recordReplaySample(long nanos) {
+
+		replaySamples++;
+		replaySampleNanos += nanos;
+	}
+
+	protected void recordTargetNetworkSync() {
+
+		targetNetworkSyncs++;
+	}
+
+	protected void recordBatch() {
+
+		if(!listeners.isEmpty()) {
+
+			for(DeepQLearningMetricsListener listener : listeners) {
+
+				listener.batchTrained(this);
+			}
+		}
+	}
+
+	public void addListener(DeepQLearningMetricsListener listener) {
+
+		listeners.add(listener);
+	}
+
+	public void removeListener(DeepQLearningMetricsListener listener) {
+
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Registers these metrics with the platform MBean server under
+	 * the name <code> crepes.buttr.pnut:type=DeepQLearningNetwork,name=
+	 * </code> followed by the given name. The metrics of the
+	 * dynamic network are registered separately through
+	 * <code> getNetworkMetrics().registerMBean() </code>.
+	 * @param name - a name that identifies the network.
+	 * @throws JMException if the metrics cannot be registered,
+	 * for example because the name is already in use.
+	 */
+	public void registerMBean(String name) throws JMException {
+
+		ObjectName objectName = new ObjectName("crepes.buttr.pnut:type=DeepQLearningNetwork,name=" + ObjectName.quote(name));
+
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+
+		this.objectName = objectName;
+	}
+
+	public void unregisterMBean() throws JMException {
+
+		if(objectName != null) {
+
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			objectName = null;
+		}
+	}
+
+	public NetworkMetrics getNetworkMetrics() {
+
+		return networkMetrics;
+	}
+
+	@Override
+	public long getNumberOfDecisions() {
+
+		return numberOfDecisions;
+	}
+
+	/**
+	 * Returns the probability of a random action that was used
+	 * for the most recent decision.
+	 */
+	@Override
+	public double getEpsilon() {
+
+		return epsilon;
+	}
+
+	@Override
+	public int getReplayBufferSize() {
+
+		return replayBufferSize;
+	}
+
+	@Override
+	public int getMaxReplayBufferSize() {
+
+		return maxReplayBufferSize;
+	}
+
+	/**
+	 * Returns the fraction of the replay buffer that is filled
+	 * with experiences.
+	 */
+	@Override
+	public double getReplayBufferOccupancy() {
+
+		return maxReplayBufferSize > 0 ? (double) replayBufferSize / maxReplayBufferSize : 0;
+	}
+
+	@Override
+	public long getReplaySamples() {
+
+		return replaySamples;
+	}
+
+	/**
+	 * Returns the average time taken to draw one experience
+	 * from the replay buffer and train the dynamic network on
+	 * it, including the forward pass of the target network.
+	 */
+	@Override
+	public double getAverageReplaySampleNanos() {
+
+		return replaySamples > 0 ? (double) replaySampleNanos / replaySamples : 0;
+	}
+
+	@Override
+	public long getTargetNetworkSyncs() {
+
+		return targetNetworkSyncs;
+	}
+
+	@Override
+	public void reset() {
+
+		numberOfDecisions = 0;
+		replaySamples = 0;
+		replaySampleNanos = 0;
+		targetNetworkSyncs = 0;
+
+		networkMetrics.reset();
+	}
+}
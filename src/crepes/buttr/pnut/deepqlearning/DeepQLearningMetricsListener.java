@@ -0,0 +1,19 @@
+package crepes.buttr.pnut.deepqlearning;
+
+/**
+ * Receives the metrics of a Deep Q-Learning Network each time
+ * it trains on a batch of experiences from its replay buffer.
+ * @see DeepQLearningMetrics#addListener(DeepQLearningMetricsListener)
+ */
+public interface DeepQLearningMetricsListener {
+
+	/**
+	 * Called on the training thread at the end of every call to
+	 * <code> checkForBatchRefresh() </code> that trained the
+	 * network. Implementations should return quickly, since
+	 * training waits for them.
+	 * @param metrics - the metrics of the network, already
+	 * updated with the batch that was just trained on.
+	 */
+	void batchTrained(DeepQLearningMetrics metrics);
+}
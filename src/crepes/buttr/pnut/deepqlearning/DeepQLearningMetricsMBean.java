@@ -0,0 +1,27 @@
+package crepes.buttr.pnut.deepqlearning;
+
+/**
+ * The management interface through which the metrics of a
+ * Deep Q-Learning Network are exposed over JMX.
+ * @see DeepQLearningMetrics#registerMBean(String)
+ */
+public interface DeepQLearningMetricsMBean {
+
+	long getNumberOfDecisions();
+
+	double getEpsilon();
+
+	int getReplayBufferSize();
+
+	int getMaxReplayBufferSize();
+
+	double getReplayBufferOccupancy();
+
+	long getReplaySamples();
+
+	double getAverageReplaySampleNanos();
+
+	long getTargetNetworkSyncs();
+
+	void reset();
+}
@@ -37,6 +37,15 @@ public class DeepQLearningNetwork {
 	private long numberOfDecisions;
 	private int numberOfBatchSamplesSinceCopy;
 	
+	private DeepQLearningMetrics metrics;
+	
+	private OutputCache inferenceCache;
+	private OutputCache targetInferenceCache;
+	private double[] lastOutputs;
+	
+	private RandomSource random;
+	private int[] sampleIndices;
+	
 	/**
 	 * Network constructor which takes the desired size of the
 	 * network as an array, where each index in the array
@@ -47,8 +56,39 @@ public class DeepQLearningNetwork {
 	 */
 	public DeepQLearningNetwork(int[] layerSizes) {
 		
-		this.dynamicNetwork = new NeuralNetwork(layerSizes, false);
-		this.targetNetwork = new NeuralNetwork(layerSizes, true);
+		this(layerSizes, new SplittableRandomSource());
+	}
+	
+	/**
+	 * Network constructor whose random behavior, from the
+	 * initial weights through exploration to the sampling of
+	 * the replay buffer, is entirely reproducible for a given
+	 * seed.
+	 * @param layerSizes - an array representing the size of
+	 * each layer of the neural network.
+	 * @param seed - the seed of the network's random source.
+	 */
+	public DeepQLearningNetwork(int[] layerSizes, long seed) {
+		
+		this(layerSizes, new SplittableRandomSource(seed));
+	}
+	
+	/**
+	 * Network constructor which draws all of its random numbers
+	 * from the given source. To train several networks on
+	 * separate threads, give each one its own source, for
+	 * example from <code> split() </code>.
+	 * @param layerSizes - an array representing the size of
+	 * each layer of the neural network.
+	 * @param random - the random source, which is used only by
+	 * the thread training this network.
+	 */
+	public DeepQLearningNetwork(int[] layerSizes, RandomSource random) {
+		
+		this.random = random;
+		
+		this.dynamicNetwork = new NeuralNetwork(layerSizes, false, random.split());
+		this.targetNetwork = new NeuralNetwork(layerSizes, true, random.split());
 		
 		replayBuffer = new ArrayList<Experience>();
 		numberOfDecisions = 0;
@@ -79,38 +119,99 @@ public class DeepQLearningNetwork {
 		
 		this.state = state;
 		
-		dynamicNetwork.passInputs(state);
-		dynamicNetwork.forwardPropagate();
+		double[] outputs = null;
+		
+		if(inferenceCache != null)
+			outputs = inferenceCache.get(state, dynamicNetwork.getVersion());
+		
+		if(outputs == null) {
+			
+			dynamicNetwork.passInputs(state);
+			dynamicNetwork.forwardPropagate();
+			
+			outputs = dynamicNetwork.getOutputs();
+			
+			if(inferenceCache != null)
+				inferenceCache.put(state, dynamicNetwork.getVersion(), outputs);
+		}
+		
+		lastOutputs = outputs;
 		
 		epsilon = calculateEpsilon();
-		double random = Math.random();
 		
-		if(random < epsilon) {
+		if(random.nextDouble() < epsilon) {
 			
-			lastAction = (int) (Math.random() * dynamicNetwork.getNeuronLayers().get(dynamicNetwork.getNeuronLayers().size() - 1).size());
+			lastAction = random.nextInt(outputs.length);
 			
 		} else {
-		
-			double[] outputs = dynamicNetwork.getOutputs();
 			
-			lastAction = getIndexOfHighestQValue(outputs);
+			lastAction = getIndexOfHighestQValue(outputs, random);
 		}
 		
 		numberOfDecisions++;
 		
+		if(metrics != null)
+			metrics.recordDecision(epsilon);
+		
 		return lastAction;
 	}
 	
+	/**
+	 * Returns the index of the action with the highest Q-Value,
+	 * choosing randomly between actions that are tied. Unlike
+	 * <code> getEpsilonGreedyActionIndex() </code>, this never
+	 * explores and does not change the state of the network, so
+	 * it can be applied to Q-Values predicted on other threads,
+	 * for example by a <code> BatchingInferenceScheduler </code>.
+	 * Ties are broken with the calling thread's own random
+	 * stream.
+	 * @see #createInferenceModel()
+	 * @param qValues - the outputs predicted for a state.
+	 * @return An integer with a value no less than 0 and less
+	 * than the number of output neurons in the network.
+	 */
+	public int getGreedyActionIndex(double[] qValues) {
+		
+		return getIndexOfHighestQValue(qValues, ThreadLocalRandomSource.current());
+	}
+	
+	/**
+	 * Returns the index of the action with the highest Q-Value,
+	 * using the given source to choose between actions that are
+	 * tied, so that the choice can be reproduced.
+	 * @see #getGreedyActionIndex(double[])
+	 * @param qValues - the outputs predicted for a state.
+	 * @param random - the source used to break ties.
+	 * @return An integer with a value no less than 0 and less
+	 * than the number of output neurons in the network.
+	 */
+	public int getGreedyActionIndex(double[] qValues, RandomSource random) {
+		
+		return getIndexOfHighestQValue(qValues, random);
+	}
+	
+	/**
+	 * Returns a snapshot of the dynamic network that can be
+	 * shared by threads serving actions while this network
+	 * keeps training. The snapshot does not follow later
+	 * training; take a new one to publish updated weights.
+	 * @return A new inference model of the dynamic network.
+	 */
+	public InferenceModel createInferenceModel() {
+		
+		return new InferenceModel(dynamicNetwork);
+	}
+	
 	private double calculateEpsilon() {
 		
 		return (1 / Math.pow((numberOfDecisions + 1), confidence));
 	}
 	
-	private int getIndexOfHighestQValue(double[] outputs) {
+	private static int getIndexOfHighestQValue(double[] outputs, RandomSource random) {
 		
 		int indexOfLargestValue = 0;
 		int[] equalActions = new int[outputs.length];
-		int numberOfEqualActions = 0;
+		int numberOfEqualActions = 1;
 		
 		for(int i = 1; i < outputs.length; i++) {
 			
@@ -118,37 +219,19 @@ public class DeepQLearningNetwork {
 				
 				indexOfLargestValue = i;
 				
-				numberOfEqualActions = 0;
+				equalActions[0] = i;
+				numberOfEqualActions = 1;
 				
-			} else if(outputs[i] == outputs[i - 1]) {
+			} else if(outputs[i] == outputs[indexOfLargestValue]) {
 				
-				if(numberOfEqualActions == 0) {
-					
-					equalActions[numberOfEqualActions] = i - 1;
-					equalActions[numberOfEqualActions + 1] = i;
-					numberOfEqualActions += 2;
-					
-				} else {
-					
-					equalActions[numberOfEqualActions] = i;
-					numberOfEqualActions++;
-				}
+				equalActions[numberOfEqualActions] = i;
+				numberOfEqualActions++;
 			}
 		}
 		
 		if(numberOfEqualActions > 1) {
 			
-			double random = Math.random();
-			
-			Action:
-			for(int i = 0; i < numberOfEqualActions; i++) {
-				
-				if(random < (i + 1) / numberOfEqualActions) {
-					
-					indexOfLargestValue = equalActions[i];
-					break Action;
-				}
-			}
+			indexOfLargestValue = equalActions[random.nextInt(numberOfEqualActions)];
 		}
 		
 		return indexOfLargestValue;
@@ -185,7 +268,7 @@ public class DeepQLearningNetwork {
 			
 			if(lastReward == 0)
 			{
-			    if(Math.random() >= prioritization)
+			    if(random.nextDouble() >= prioritization)
 				replayBuffer.add(new Experience(this.state, this.lastAction, this.lastReward, this.terminal, this.statePrime));
 			}
 			else
@@ -193,6 +276,9 @@ public class DeepQLearningNetwork {
 			    replayBuffer.add(new Experience(this.state, this.lastAction, this.lastReward, this.terminal, this.statePrime));
 			}
 		}
+		
+		if(metrics != null)
+			metrics.recordReplayBufferSize(replayBuffer.size(), maxReplayBufferSize);
 	}
 	
 	/**
@@ -203,27 +289,31 @@ public class DeepQLearningNetwork {
 		
 		if(numberOfDecisions % replayBufferRefreshRate == 0 && replayBuffer.size() > 0) {
 			
-			int sampleIndex;
 			Experience sample;
 			double[] correctedOutputs;
 			
+			if(sampleIndices == null || sampleIndices.length < numberOfReplayBufferSamples)
+				sampleIndices = new int[numberOfReplayBufferSamples];
+			
+			random.nextInts(sampleIndices, numberOfReplayBufferSamples, replayBuffer.size());
+			
 			for(int i = 0; i < numberOfReplayBufferSamples; i++) {
 				
-				sampleIndex = (int) (Math.random() * replayBuffer.size());
-				sample = replayBuffer.get(sampleIndex);
+				long sampleStart = metrics != null ? System.nanoTime() : 0;
+				
+				sample = replayBuffer.get(sampleIndices[i]);
 				
 				dynamicNetwork.passInputs(sample.getState());
 				dynamicNetwork.forwardPropagate();
 				
-				targetNetwork.passInputs(sample.getStatePrime());
-				targetNetwork.forwardPropagate();
-				
 				correctedOutputs = dynamicNetwork.getOutputs();
 				
 				if(!sample.getTerminal()) {
 					
+					double[] targetOutputs = getTargetOutputs(sample.getStatePrime());
+					
 				correctedOutputs[sample.getActionIndex()] = sample.getReward() +
-						discountRate * targetNetwork.getOutputs()[getIndexOfHighestQValue(targetNetwork.getOutputs())];
+						discountRate * targetOutputs[getIndexOfHighestQValue(targetOutputs, random)];
 				
 				} else {
 					
@@ -234,12 +324,39 @@ public class DeepQLearningNetwork {
 				dynamicNetwork.passCorrectOutputValues(correctedOutputs);
 				dynamicNetwork.backPropagate();
 				
+				if(metrics != null)
+					metrics.recordReplaySample(System.nanoTime() - sampleStart);
+				
 				numberOfBatchSamplesSinceCopy++;
 				checkForTargetNetworkRefresh();
 			}
+			
+			if(metrics != null)
+				metrics.recordBatch();
 		}
 	}
 	
+	private double[] getTargetOutputs(double[] statePrime) {
+		
+		double[] targetOutputs = null;
+		
+		if(targetInferenceCache != null)
+			targetOutputs = targetInferenceCache.get(statePrime, targetNetwork.getVersion());
+		
+		if(targetOutputs == null) {
+			
+			targetNetwork.passInputs(statePrime);
+			targetNetwork.forwardPropagate();
+			
+			targetOutputs = targetNetwork.getOutputs();
+			
+			if(targetInferenceCache != null)
+				targetInferenceCache.put(statePrime, targetNetwork.getVersion(), targetOutputs);
+		}
+		
+		return targetOutputs;
+	}
+	
 	private void checkForTargetNetworkRefresh() {
 		
 		if(numberOfBatchSamplesSinceCopy == networkRefreshRate) {
@@ -259,6 +376,9 @@ public class DeepQLearningNetwork {
 			}
 			
 			numberOfBatchSamplesSinceCopy = 0;
+			
+			if(metrics != null)
+				metrics.recordTargetNetworkSync();
 		}
 	}
 	
@@ -328,8 +448,98 @@ public class DeepQLearningNetwork {
 		this.prioritization = prioritization;
 	}
 	
+	/**
+	 * Starts collecting counters and timings for this network
+	 * and its dynamic network. While metrics are disabled, which
+	 * is the default, the network does no timing at all.
+	 * @return The metrics of the network, which keep being
+	 * updated until <code> disableMetrics() </code> is called.
+	 */
+	public DeepQLearningMetrics enableMetrics() {
+		
+		if(metrics == null) {
+			
+			metrics = new DeepQLearningMetrics(dynamicNetwork.enableMetrics());
+			metrics.recordReplayBufferSize(replayBuffer.size(), maxReplayBufferSize);
+		}
+		
+		return metrics;
+	}
+	
+	public void disableMetrics() {
+		
+		metrics = null;
+		dynamicNetwork.disableMetrics();
+	}
+	
+	/**
+	 * Returns the metrics of the network, or <code> null
+	 * </code> if metrics are disabled.
+	 * @see #enableMetrics()
+	 */
+	public DeepQLearningMetrics getMetrics() {
+		
+		return metrics;
+	}
+	
+	/**
+	 * Enables caching of the Q-Values computed for recurring
+	 * states, both by the dynamic network when choosing actions
+	 * and by the target network during training. Cached values
+	 * are discarded automatically whenever the weights of the
+	 * corresponding network change, so the chosen actions are
+	 * the same as without the cache.
+	 * @param size - the largest number of states remembered by
+	 * each network, or 0 to disable caching.
+	 */
+	public void setInferenceCacheSize(int size) {
+		
+		if(size > 0) {
+			
+			inferenceCache = new OutputCache(size);
+			targetInferenceCache = new OutputCache(size);
+			
+		} else {
+			
+			inferenceCache = null;
+			targetInferenceCache = null;
+		}
+	}
+	
+	/**
+	 * Returns the cache of the dynamic network, whose hit rate
+	 * shows how often action selection skipped a forward pass,
+	 * or <code> null </code> if caching is disabled.
+	 * @see #setInferenceCacheSize(int)
+	 */
+	public OutputCache getInferenceCache() {
+		
+		return inferenceCache;
+	}
+	
+	/**
+	 * Returns the cache of the target network, or <code> null
+	 * </code> if caching is disabled.
+	 * @see #setInferenceCacheSize(int)
+	 */
+	public OutputCache getTargetInferenceCache() {
+		
+		return targetInferenceCache;
+	}
+	
+	/**
+	 * Returns the outputs of the dynamic network. If caching is
+	 * enabled, these are the Q-Values of the state given to the
+	 * most recent call to <code> getEpsilonGreedyActionIndex()
+	 * </code>, whether or not they came from the cache.
+	 * @return An array containing the values of the output
+	 * layer of the dynamic network.
+	 */
 	public double[] getOutputs() {
 		
+		if(inferenceCache != null && lastOutputs != null)
+			return lastOutputs.clone();
+		
 		return dynamicNetwork.getOutputs();
 	}
 }
\ No newline at end of file
@@ -13,6 +13,7 @@ public class Experience {
 		this.state = state;
 		this.actionIndex = actionIndex;
 		this.reward = reward;
+		this.terminal = terminal;
 		this.statePrime = statePrime;
 	}
 
@@ -0,0 +1,85 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+/**
+ * Runs the same samples through a reference backend and an
+ * alternative one, and measures how far the outputs of the
+ * alternative drift from the reference. Fast execution paths
+ * can be checked this way against the plain <code>
+ * NeuralNetwork </code> before they are enabled.
+ * @see InferenceBackend#of(NeuralNetwork)
+ */
+public class BackendComparator {
+
+	private double tolerance;
+
+	/**
+	 *
+	 * @param tolerance - the largest absolute difference allowed
+	 * between any output of the two backends.
+	 */
+	public BackendComparator(double tolerance) {
+
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * Compares the outputs of the two backends on every sample.
+	 * @param reference - the backend known to be correct.
+	 * @param candidate - the backend being checked.
+	 * @param samples - the inputs to compare on.
+	 * @return The differences found between the backends.
+	 */
+	public BackendComparison compare(InferenceBackend reference, InferenceBackend candidate, double[][] samples) {
+
+		double maxAbsoluteError = 0;
+		double totalAbsoluteError = 0;
+		long numberOfOutputs = 0;
+		int worstSample = -1;
+		int argmaxAgreements = 0;
+
+		for(int i = 0; i < samples.length; i++) {
+
+			double[] expected = reference.predict(samples[i]);
+			double[] actual = candidate.predict(samples[i]);
+
+			if(expected.length != actual.length)
+				throw new IllegalArgumentException("The backends produce different numbers of outputs.");
+
+			for(int j = 0; j < expected.length; j++) {
+
+				double error = Math.abs(expected[j] - actual[j]);
+
+				if(Double.isNaN(error))
+					error = Double.POSITIVE_INFINITY;
+
+				if(error > maxAbsoluteError || worstSample < 0) {
+
+					maxAbsoluteError = Math.max(maxAbsoluteError, error);
+					worstSample = i;
+				}
+
+				totalAbsoluteError += error;
+				numberOfOutputs++;
+			}
+
+			if(indexOfLargest(expected) == indexOfLargest(actual))
+				argmaxAgreements++;
+		}
+
+		return new BackendComparison(samples.length, maxAbsoluteError, numberOfOutputs > 0 ? totalAbsoluteError / numberOfOutputs : 0,
+				worstSample, samples.length > 0 ? (double) argmaxAgreements / samples.length : 1, tolerance);
+	}
+
+	private static int indexOfLargest(double[] values) {
+
+		int index = 0;
+
+		for(int i = 1; i < values.length; i++) {
+
+			if(values[i] > values[index])
+				index = i;
+		}
+
+		return index;
+	}
+}
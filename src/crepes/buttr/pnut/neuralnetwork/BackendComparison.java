@@ -0,0 +1,81 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+/**
+ * The differences found between the outputs of two backends
+ * over a set of samples.
+ * @see BackendComparator
+ */
+public class BackendComparison {
+
+	private int numberOfSamples;
+	private double maxAbsoluteError;
+	private double meanAbsoluteError;
+	private int worstSample;
+	private double argmaxAgreement;
+	private double tolerance;
+
+	protected BackendComparison(int numberOfSamples, double maxAbsoluteError, double meanAbsoluteError, int worstSample,
+			double argmaxAgreement, double tolerance) {
+
+		this.numberOfSamples = numberOfSamples;
+		this.maxAbsoluteError = maxAbsoluteError;
+		this.meanAbsoluteError = meanAbsoluteError;
+		this.worstSample = worstSample;
+		this.argmaxAgreement = argmaxAgreement;
+		this.tolerance = tolerance;
+	}
+
+	/**
+	 * Returns whether every output of the candidate was within
+	 * the tolerance of the reference.
+	 */
+	public boolean passes() {
+
+		return maxAbsoluteError <= tolerance;
+	}
+
+	public int getNumberOfSamples() {
+
+		return numberOfSamples;
+	}
+
+	public double getMaxAbsoluteError() {
+
+		return maxAbsoluteError;
+	}
+
+	public double getMeanAbsoluteError() {
+
+		return meanAbsoluteError;
+	}
+
+	/**
+	 * Returns the index of the sample on which the largest
+	 * error was found.
+	 */
+	public int getWorstSample() {
+
+		return worstSample;
+	}
+
+	/**
+	 * Returns the fraction of samples for which both backends
+	 * gave their highest output on the same neuron.
+	 */
+	public double getArgmaxAgreement() {
+
+		return argmaxAgreement;
+	}
+
+	public double getTolerance() {
+
+		return tolerance;
+	}
+
+	@Override
+	public String toString() {
+
+		return String.format("%s: %d samples, max absolute error %.3e (sample %d), mean absolute error %.3e, argmax agreement %.4f",
+				passes() ? "PASS" : "FAIL", numberOfSamples, maxAbsoluteError, worstSample, meanAbsoluteError, argmaxAgreement);
+	}
+}
@@ -0,0 +1,292 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects prediction requests from many threads and runs them
+ * through an inference model in batches. A single scheduling
+ * thread waits for the first request, then keeps gathering
+ * requests until either the batch is full or the first request
+ * has waited for the maximum wait time, and then predicts the
+ * whole batch with one call to <code> predictBatch() </code>.
+ * Each caller receives a future that is completed on the
+ * scheduling thread, so work attached to it with the non-async
+ * methods of <code> CompletableFuture </code> also runs there
+ * and delays the next batch. When the scheduler serves a model
+ * registry, each batch runs entirely on the version that was
+ * current when the batch started.
+ * @see InferenceModel#predictBatch(double[][], int, InferenceWorkspace[], double[][])
+ */
+public class BatchingInferenceScheduler implements AutoCloseable {
+
+	private final ModelRegistry registry;
+
+	private final int maxBatchSize;
+	private final long maxWaitNanos;
+
+	private final LinkedBlockingQueue<Request> requests;
+	private final Thread schedulingThread;
+
+	private volatile boolean closed;
+
+	private volatile long numberOfBatches;
+	private volatile long numberOfRequests;
+	private volatile long totalQueueNanos;
+	private volatile long maxQueueNanos;
+
+	/**
+	 *
+	 * @param model - the model used to make every prediction.
+	 * @param maxBatchSize - the largest number of requests
+	 * predicted together.
+	 * @param maxWaitNanos - the longest time the first request
+	 * of a batch waits for more requests to arrive.
+	 */
+	public BatchingInferenceScheduler(InferenceModel model, int maxBatchSize, long maxWaitNanos) {
+
+		this(new ModelRegistry(model), maxBatchSize, maxWaitNanos);
+	}
+
+	/**
+	 *
+	 * @param registry - the registry whose current version is
+	 * used to predict each batch.
+	 * @param maxBatchSize - the largest number of requests
+	 * predicted together.
+	 * @param maxWaitNanos - the longest time the first request
+	 * of a batch waits for more requests to arrive.
+	 */
+	public BatchingInferenceScheduler(ModelRegistry registry, int maxBatchSize, long maxWaitNanos) {
+
+		this.registry = registry;
+		this.maxBatchSize = Math.max(1, maxBatchSize);
+		this.maxWaitNanos = Math.max(0, maxWaitNanos);
+
+		this.requests = new LinkedBlockingQueue<Request>();
+
+		this.schedulingThread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+
+				schedule();
+			}
+
+		}, "batching-inference-scheduler");
+
+		schedulingThread.setDaemon(true);
+		schedulingThread.start();
+	}
+
+	/**
+	 * Queues the given inputs to be predicted with the next
+	 * batch.
+	 * @param inputValues - the values of the input layer. The
+	 * array must not be changed until the future is completed.
+	 * @return A future that is completed with the values of the
+	 * output layer, or completed exceptionally if the scheduler
+	 * is closed first.
+	 */
+	public CompletableFuture<double[]> submit(double[] inputValues) {
+
+		Request request = new Request(inputValues);
+
+		if(closed) {
+
+			request.future.completeExceptionally(new RejectedExecutionException("The scheduler is closed."));
+			return request.future;
+		}
+
+		requests.add(request);
+
+		if(closed && requests.remove(request))
+			request.future.completeExceptionally(new RejectedExecutionException("The scheduler is closed."));
+
+		return request.future;
+	}
+
+	private void schedule() {
+
+		int[] layerSizes = registry.getLayerSizes();
+
+		double[][] inputs = new double[maxBatchSize][];
+		double[][] outputs = new double[maxBatchSize][];
+		InferenceWorkspace[] workspaces = new InferenceWorkspace[maxBatchSize];
+
+		for(int i = 0; i < maxBatchSize; i++) {
+
+			workspaces[i] = registry.getCurrentVersion().getModel().createWorkspace();
+		}
+
+		ArrayList<Request> batch = new ArrayList<Request>(maxBatchSize);
+
+		try {
+
+			while(!closed) {
+
+				try {
+
+					Request first = requests.take();
+					batch.add(first);
+
+					long deadline = first.submittedNanos + maxWaitNanos;
+
+					while(batch.size() < maxBatchSize) {
+
+						Request next = requests.poll();
+
+						if(next == null) {
+
+							long remaining = deadline - System.nanoTime();
+
+							if(remaining <= 0)
+								break;
+
+							next = requests.poll(remaining, TimeUnit.NANOSECONDS);
+
+							if(next == null)
+								break;
+						}
+
+						batch.add(next);
+					}
+
+				} catch(InterruptedException e) {
+
+					break;
+				}
+
+				long started = System.nanoTime();
+				long queueNanos = 0;
+				long longestWait = maxQueueNanos;
+
+				for(int i = 0; i < batch.size(); i++) {
+
+					Request request = batch.get(i);
+
+					inputs[i] = request.inputValues;
+					outputs[i] = new double[layerSizes[layerSizes.length - 1]];
+
+					long waited = started - request.submittedNanos;
+
+					queueNanos += waited;
+					longestWait = Math.max(longestWait, waited);
+				}
+
+				numberOfBatches++;
+				numberOfRequests += batch.size();
+				totalQueueNanos += queueNanos;
+				maxQueueNanos = longestWait;
+
+				try {
+
+					registry.getCurrentVersion().getModel().predictBatch(inputs, batch.size(), workspaces, outputs);
+
+					for(int i = 0; i < batch.size(); i++) {
+
+						batch.get(i).future.complete(outputs[i]);
+					}
+
+				} catch(RuntimeException e) {
+
+					for(Request request : batch) {
+
+						request.future.completeExceptionally(e);
+					}
+				}
+
+				for(int i = 0; i < batch.size(); i++) {
+
+					inputs[i] = null;
+				}
+
+				batch.clear();
+			}
+
+		} finally {
+
+			closed = true;
+
+			for(Request request : batch) {
+
+				request.future.completeExceptionally(new RejectedExecutionException("The scheduler is closed."));
+			}
+
+			Request request;
+
+			while((request = requests.poll()) != null) {
+
+				request.future.completeExceptionally(new RejectedExecutionException("The scheduler is closed."));
+			}
+		}
+	}
+
+	/**
+	 * Stops the scheduling thread. Requests that have not yet
+	 * been predicted, including those already gathered into a
+	 * batch that is still waiting for more requests, are
+	 * completed exceptionally.
+	 */
+	@Override
+	public void close() {
+
+		closed = true;
+		schedulingThread.interrupt();
+	}
+
+	public long getNumberOfBatches() {
+
+		return numberOfBatches;
+	}
+
+	public long getNumberOfRequests() {
+
+		return numberOfRequests;
+	}
+
+	/**
+	 * Returns the average number of requests per batch divided
+	 * by the maximum batch size.
+	 * @return A value between 0 and 1.
+	 */
+	public double getAverageBatchFill() {
+
+		long batches = numberOfBatches;
+
+		return batches > 0 ? (double) numberOfRequests / batches / maxBatchSize : 0;
+	}
+
+	/**
+	 * Returns the average time between a request being submitted
+	 * and its batch starting to be predicted.
+	 */
+	public double getAverageQueueNanos() {
+
+		long count = numberOfRequests;
+
+		return count > 0 ? (double) totalQueueNanos / count : 0;
+	}
+
+	public long getMaxQueueNanos() {
+
+		return maxQueueNanos;
+	}
+
+	private static class Request {
+
+		private final double[] inputValues;
+		private final long submittedNanos;
+		private final CompletableFuture<double[]> future;
+
+		private Request(double[] inputValues) {
+
+			this.inputValues = inputValues;
+			this.submittedNanos = System.nanoTime();
+			this.future = new CompletableFuture<double[]>();
+		}
+	}
+}
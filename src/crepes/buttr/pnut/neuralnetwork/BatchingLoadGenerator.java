@@ -0,0 +1,177 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local load generator for <code> BatchingInferenceScheduler
+ * </code>. A number of client threads each submit a series of
+ * random inputs to one scheduler and wait for every answer before
+ * sending the next request. Each batched output is compared with a
+ * single <code> predict() </code> call on the same model, and the
+ * batch fill, queue latency and throughput of the scheduler are
+ * returned when every client has finished. <code> main() </code>
+ * prints them.
+ *
+ * <p>Usage: <code> BatchingLoadGenerator [clients]
+ * [requestsPerClient] [maxBatchSize] [maxWaitMicros] </code></p>
+ */
+public class BatchingLoadGenerator {
+
+	private final InferenceModel model;
+
+	private final int numberOfClients;
+	private final int requestsPerClient;
+	private final int maxBatchSize;
+	private final long maxWaitNanos;
+
+	private final RandomSource random;
+
+	private final AtomicLong mismatches;
+	private final AtomicLong failures;
+
+	/**
+	 *
+	 * @param model - the model served by the scheduler and used
+	 * to compute the expected outputs.
+	 * @param numberOfClients - the number of threads submitting
+	 * requests at the same time.
+	 * @param requestsPerClient - the number of requests each
+	 * thread submits, one after another.
+	 * @param maxBatchSize - the largest batch of the scheduler.
+	 * @param maxWaitNanos - the longest time the scheduler waits
+	 * to fill a batch.
+	 * @param random - the source of the random inputs, which is
+	 * split once per client.
+	 */
+	public BatchingLoadGenerator(InferenceModel model, int numberOfClients, int requestsPerClient, int maxBatchSize,
+			long maxWaitNanos, RandomSource random) {
+
+		this.model = model;
+		this.numberOfClients = Math.max(1, numberOfClients);
+		this.requestsPerClient = Math.max(0, requestsPerClient);
+		this.maxBatchSize = maxBatchSize;
+		this.maxWaitNanos = maxWaitNanos;
+		this.random = random;
+
+		this.mismatches = new AtomicLong();
+		this.failures = new AtomicLong();
+	}
+
+	/**
+	 * Runs every client against a new scheduler and closes the
+	 * scheduler.
+	 * @return The measurements of the run, including the number
+	 * of batched outputs that differed from single predictions.
+	 * @throws InterruptedException if the calling thread is
+	 * interrupted while waiting for the clients.
+	 */
+	public BatchingLoadResult run() throws InterruptedException {
+
+		mismatches.set(0);
+		failures.set(0);
+
+		final int numberOfInputs = model.getLayerSizes()[0];
+		final CountDownLatch finished = new CountDownLatch(numberOfClients);
+
+		long start;
+
+		try(final BatchingInferenceScheduler scheduler = new BatchingInferenceScheduler(model, maxBatchSize, maxWaitNanos)) {
+
+			start = System.nanoTime();
+
+			for(int i = 0; i < numberOfClients; i++) {
+
+				final RandomSource clientRandom = random.split();
+
+				Thread client = new Thread(new Runnable() {
+
+					@Override
+					public void run() {
+
+						try {
+
+							runClient(scheduler, clientRandom, numberOfInputs);
+
+						} finally {
+
+							finished.countDown();
+						}
+					}
+
+				}, "batching-load-client-" + i);
+
+				client.setDaemon(true);
+				client.start();
+			}
+
+			finished.await();
+
+			return new BatchingLoadResult(numberOfClients, scheduler.getNumberOfRequests(), scheduler.getNumberOfBatches(),
+					scheduler.getAverageBatchFill(), scheduler.getAverageQueueNanos(), scheduler.getMaxQueueNanos(),
+					System.nanoTime() - start, mismatches.get(), failures.get());
+		}
+	}
+
+	private void runClient(BatchingInferenceScheduler scheduler, RandomSource clientRandom, int numberOfInputs) {
+
+		double[] inputs = new double[numberOfInputs];
+
+		for(int i = 0; i < requestsPerClient; i++) {
+
+			for(int j = 0; j < inputs.length; j++) {
+
+				inputs[j] = clientRandom.nextDouble();
+			}
+
+			try {
+
+				double[] batched = scheduler.submit(inputs).get();
+
+				if(!Arrays.equals(batched, model.predict(inputs)))
+					mismatches.incrementAndGet();
+
+			} catch(ExecutionException e) {
+
+				failures.incrementAndGet();
+
+			} catch(InterruptedException e) {
+
+				Thread.currentThread().interrupt();
+				failures.addAndGet(requestsPerClient - i);
+				return;
+			}
+		}
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+
+		int clients = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+		int requests = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+		int batchSize = args.length > 2 ? Integer.parseInt(args[2]) : 32;
+		long waitMicros = args.length > 3 ? Long.parseLong(args[3]) : 200;
+
+		RandomSource random = new SplittableRandomSource(42);
+		NeuralNetwork network = new NeuralNetwork(new int[]{64, 128, 64, 8}, false, random.split());
+
+		BatchingLoadGenerator generator = new BatchingLoadGenerator(new InferenceModel(network), clients, requests, batchSize,
+				waitMicros * 1000, random);
+
+		BatchingLoadResult result = generator.run();
+
+		System.out.println("clients:              " + result.getNumberOfClients());
+		System.out.println("requests:             " + result.getNumberOfRequests());
+		System.out.println("batches:              " + result.getNumberOfBatches());
+		System.out.printf("average batch fill:   %.3f%n", result.getAverageBatchFill());
+		System.out.printf("average queue (us):   %.1f%n", result.getAverageQueueNanos() / 1000);
+		System.out.printf("max queue (us):       %.1f%n", result.getMaxQueueNanos() / 1000.0);
+		System.out.printf("requests per second:  %.0f%n", result.getRequestsPerSecond());
+		System.out.println("mismatched outputs:   " + result.getMismatches());
+		System.out.println("failed requests:      " + result.getFailures());
+
+		if(!result.passes())
+			System.exit(1);
+	}
+}
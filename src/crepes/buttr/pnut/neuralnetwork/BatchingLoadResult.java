@@ -0,0 +1,114 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+/**
+ * The measurements taken during one run of a batching load
+ * generator.
+ * @see BatchingLoadGenerator#run()
+ */
+public class BatchingLoadResult {
+
+	private int numberOfClients;
+	private long numberOfRequests;
+	private long numberOfBatches;
+	private double averageBatchFill;
+	private double averageQueueNanos;
+	private long maxQueueNanos;
+	private long elapsedNanos;
+	private long mismatches;
+	private long failures;
+
+	BatchingLoadResult(int numberOfClients, long numberOfRequests, long numberOfBatches, double averageBatchFill,
+			double averageQueueNanos, long maxQueueNanos, long elapsedNanos, long mismatches, long failures) {
+
+		this.numberOfClients = numberOfClients;
+		this.numberOfRequests = numberOfRequests;
+		this.numberOfBatches = numberOfBatches;
+		this.averageBatchFill = averageBatchFill;
+		this.averageQueueNanos = averageQueueNanos;
+		this.maxQueueNanos = maxQueueNanos;
+		this.elapsedNanos = elapsedNanos;
+		this.mismatches = mismatches;
+		this.failures = failures;
+	}
+
+	/**
+	 * Returns whether every request completed and every batched
+	 * output was identical to the output of a single prediction.
+	 */
+	public boolean passes() {
+
+		return mismatches == 0 && failures == 0;
+	}
+
+	public int getNumberOfClients() {
+
+		return numberOfClients;
+	}
+
+	public long getNumberOfRequests() {
+
+		return numberOfRequests;
+	}
+
+	public long getNumberOfBatches() {
+
+		return numberOfBatches;
+	}
+
+	/**
+	 * Returns the average number of requests per batch divided
+	 * by the maximum batch size.
+	 * @return A value between 0 and 1.
+	 */
+	public double getAverageBatchFill() {
+
+		return averageBatchFill;
+	}
+
+	public double getAverageQueueNanos() {
+
+		return averageQueueNanos;
+	}
+
+	public long getMaxQueueNanos() {
+
+		return maxQueueNanos;
+	}
+
+	public long getElapsedNanos() {
+
+		return elapsedNanos;
+	}
+
+	public double getRequestsPerSecond() {
+
+		return elapsedNanos > 0 ? numberOfRequests * 1e9 / elapsedNanos : 0;
+	}
+
+	/**
+	 * Returns the number of batched outputs that differed from
+	 * the output of a single prediction.
+	 */
+	public long getMismatches() {
+
+		return mismatches;
+	}
+
+	/**
+	 * Returns the number of requests that were completed
+	 * exceptionally or never submitted.
+	 */
+	public long getFailures() {
+
+		return failures;
+	}
+
+	@Override
+	public String toString() {
+
+		return String.format("%d clients: %d requests in %d batches, average batch fill %.3f, average queue %.1f us, "
+				+ "max queue %.1f us, %.0f requests/s, %d mismatched outputs, %d failed requests",
+				numberOfClients, numberOfRequests, numberOfBatches, averageBatchFill, averageQueueNanos / 1000,
+				maxQueueNanos / 1000.0, getRequestsPerSecond(), mismatches, failures);
+	}
+}
@@ -0,0 +1,367 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+import java.util.ArrayList;
+
+/**
+ * Runs the gradient check and the backend comparisons on seeded
+ * networks and prints each result. The derivatives of <code>
+ * backPropagate() </code> must agree with the numerical estimates
+ * within a relative error of 0.0001, for the default activation
+ * functions, for sigmoid hidden layers and for inputs passed with
+ * <code> passSparseInputs() </code>. Samples that bring a ReLU
+ * neuron within 0.0001 of its kink are drawn again, since the
+ * finite differences are not valid across the kink. A network trained on sparse
+ * inputs must end with exactly the weights and biases of a copy
+ * trained on the same inputs passed densely. <code> InferenceModel
+ * </code> and a <code> PrunedNeuralNetwork </code> with a threshold
+ * of 0 must reproduce the outputs of the reference network exactly,
+ * and every output of a <code> QuantizedNeuralNetwork </code> must
+ * stay within 0.05 of the reference, with the same largest output
+ * on at least 90% of the samples. The process exits with status 1
+ * if any check fails.
+ *
+ * <p>Usage: <code> CorrectnessCheck [seed] </code></p>
+ */
+public class CorrectnessCheck {
+
+	private static final double GRADIENT_EPSILON = 0.00001;
+	private static final double GRADIENT_TOLERANCE = 0.0001;
+	private static final double KINK_MARGIN = 10 * GRADIENT_EPSILON;
+	private static final double QUANTIZED_TOLERANCE = 0.05;
+	private static final double QUANTIZED_ARGMAX_AGREEMENT = 0.9;
+
+	private static final double SPARSE_INPUT_DENSITY = 0.3;
+	private static final double TRAINING_MILLI_LEARNING_SPEED = 50;
+
+	private static final int NUMBER_OF_GRADIENT_SAMPLES = 8;
+	private static final int NUMBER_OF_TRAINING_SAMPLES = 200;
+	private static final int NUMBER_OF_BACKEND_SAMPLES = 500;
+	private static final int NUMBER_OF_CALIBRATION_SAMPLES = 100;
+
+	private final RandomSource random;
+
+	private int numberOfFailures;
+
+	/**
+	 *
+	 * @param random - the source of the network weights and of
+	 * the samples every check runs on.
+	 */
+	public CorrectnessCheck(RandomSource random) {
+
+		this.random = random;
+	}
+
+	/**
+	 * Runs every check and prints its result.
+	 * @return <code> true </code> if every check passed.
+	 */
+	public boolean run() {
+
+		numberOfFailures = 0;
+
+		int[] layerSizes = {5, 7, 6, 3};
+
+		NeuralNetwork network = new NeuralNetwork(layerSizes.clone(), false, random.split());
+		randomizeBiases(network);
+
+		checkGradients("gradients, relu hidden", network);
+
+		NeuralNetwork sigmoidNetwork = new NeuralNetwork(layerSizes.clone(), false, random.split());
+		sigmoidNetwork.setActivationFunctions(NetworkMath.ActivationFunction.SIGMOID, NetworkMath.ActivationFunction.SIGMOID);
+		randomizeBiases(sigmoidNetwork);
+
+		checkGradients("gradients, sigmoid hidden", sigmoidNetwork);
+
+		int[] sparseLayerSizes = {16, 7, 6, 3};
+
+		NeuralNetwork sparseNetwork = new NeuralNetwork(sparseLayerSizes.clone(), false, random.split());
+		randomizeBiases(sparseNetwork);
+
+		checkSparseGradients("gradients, sparse inputs", sparseNetwork);
+		checkSparseTraining("sparse and dense training", sparseNetwork);
+
+		double[][] samples = randomSamples(NUMBER_OF_BACKEND_SAMPLES, layerSizes[0]);
+		InferenceBackend reference = InferenceBackend.of(network);
+		BackendComparator exact = new BackendComparator(0);
+
+		report("InferenceModel", exact.compare(reference, new InferenceModel(network), samples));
+		report("PrunedNeuralNetwork(0)", exact.compare(reference, new PrunedNeuralNetwork(network, 0), samples));
+
+		double[][] calibrationSamples = randomSamples(NUMBER_OF_CALIBRATION_SAMPLES, layerSizes[0]);
+		BackendComparison quantized = new BackendComparator(QUANTIZED_TOLERANCE).compare(reference,
+				new QuantizedNeuralNetwork(network, calibrationSamples), samples);
+
+		print("QuantizedNeuralNetwork", quantized.passes() && quantized.getArgmaxAgreement() >= QUANTIZED_ARGMAX_AGREEMENT,
+				quantized.toString());
+
+		return numberOfFailures == 0;
+	}
+
+	private void checkGradients(String name, NeuralNetwork network) {
+
+		int[] layerSizes = network.getLayerSizes();
+
+		double[][] inputs = new double[NUMBER_OF_GRADIENT_SAMPLES][];
+		double[][] expectedOutputs = randomSamples(NUMBER_OF_GRADIENT_SAMPLES, layerSizes[layerSizes.length - 1]);
+
+		for(int i = 0; i < inputs.length; i++) {
+
+			inputs[i] = randomGradientSample(network, false);
+		}
+
+		GradientCheckResult result = new GradientChecker(GRADIENT_EPSILON).check(network, inputs, expectedOutputs);
+		boolean passed = result.passes(GRADIENT_TOLERANCE);
+
+		print(name, passed, result.toString());
+	}
+
+	private void checkSparseGradients(String name, NeuralNetwork network) {
+
+		int[] layerSizes = network.getLayerSizes();
+
+		double[][] expectedOutputs = randomSamples(NUMBER_OF_GRADIENT_SAMPLES, layerSizes[layerSizes.length - 1]);
+		GradientChecker checker = new GradientChecker(GRADIENT_EPSILON);
+		GradientCheckResult worst = null;
+
+		for(int i = 0; i < NUMBER_OF_GRADIENT_SAMPLES; i++) {
+
+			double[] dense = randomGradientSample(network, true);
+			int[] indices = nonZeroIndices(dense);
+
+			GradientCheckResult result = checker.checkSparse(network, indices, nonZeroValues(dense, indices), expectedOutputs[i]);
+
+			if(worst == null || result.getMaxRelativeError() > worst.getMaxRelativeError())
+				worst = result;
+		}
+
+		print(name, worst.passes(GRADIENT_TOLERANCE), worst.toString());
+	}
+
+	/**
+	 * Trains the network on sparse inputs and a copy of it on the
+	 * same inputs passed densely, and compares every weight and
+	 * bias of the two afterwards. The zero inputs skipped by the
+	 * sparse passes contribute nothing to either pass, so the two
+	 * networks must stay identical. Training must also have moved
+	 * the parameters, or the comparison would prove nothing.
+	 */
+	private void checkSparseTraining(String name, NeuralNetwork network) {
+
+		int[] layerSizes = network.getLayerSizes();
+
+		NeuralNetwork sparse = new NeuralNetwork(layerSizes.clone(), false);
+		NeuralNetwork dense = new NeuralNetwork(layerSizes.clone(), false);
+
+		copyParameters(network, sparse);
+		copyParameters(network, dense);
+
+		sparse.setMilliLearningSpeed(TRAINING_MILLI_LEARNING_SPEED);
+		dense.setMilliLearningSpeed(TRAINING_MILLI_LEARNING_SPEED);
+
+		double[][] expectedOutputs = randomSamples(NUMBER_OF_TRAINING_SAMPLES, layerSizes[layerSizes.length - 1]);
+
+		for(int i = 0; i < NUMBER_OF_TRAINING_SAMPLES; i++) {
+
+			double[] inputs = randomSparseSample(layerSizes[0]);
+			int[] indices = nonZeroIndices(inputs);
+
+			sparse.passSparseInputs(indices, nonZeroValues(inputs, indices));
+			sparse.forwardPropagate();
+			sparse.passCorrectOutputValues(expectedOutputs[i]);
+			sparse.backPropagate();
+
+			dense.passInputs(inputs);
+			dense.forwardPropagate();
+			dense.passCorrectOutputValues(expectedOutputs[i]);
+			dense.backPropagate();
+		}
+
+		double maxDifference = maxParameterDifference(sparse, dense);
+		double maxChange = maxParameterDifference(network, dense);
+
+		print(name, maxDifference == 0 && maxChange > 0, String.format("%d samples, max parameter change %.3e, "
+				+ "max parameter difference %.3e", NUMBER_OF_TRAINING_SAMPLES, maxChange, maxDifference));
+	}
+
+	private static double maxParameterDifference(NeuralNetwork first, NeuralNetwork second) {
+
+		int[] layerSizes = first.getLayerSizes();
+		double maxDifference = 0;
+
+		for(int i = 0; i < layerSizes.length - 1; i++) {
+			for(int j = 0; j < layerSizes[i] * layerSizes[i + 1]; j++) {
+
+				maxDifference = Math.max(maxDifference, Math.abs(first.getConnectionWeight(i, j) - second.getConnectionWeight(i, j)));
+			}
+		}
+
+		for(int i = 1; i < layerSizes.length; i++) {
+			for(int j = 0; j < layerSizes[i]; j++) {
+
+				maxDifference = Math.max(maxDifference, Math.abs(first.getNeuronBias(i, j) - second.getNeuronBias(i, j)));
+			}
+		}
+
+		return maxDifference;
+	}
+
+	private void report(String name, BackendComparison comparison) {
+
+		print(name, comparison.passes(), comparison.toString());
+	}
+
+	private void print(String name, boolean passed, String details) {
+
+		if(!passed)
+			numberOfFailures++;
+
+		System.out.println((passed ? "PASS " : "FAIL ") + name + ": " + details);
+	}
+
+	private void copyParameters(NeuralNetwork from, NeuralNetwork to) {
+
+		int[] layerSizes = from.getLayerSizes();
+
+		for(int i = 0; i < layerSizes.length - 1; i++) {
+			for(int j = 0; j < layerSizes[i] * layerSizes[i + 1]; j++) {
+
+				to.setConnectionWeight(i, j, from.getConnectionWeight(i, j));
+			}
+		}
+
+		for(int i = 1; i < layerSizes.length; i++) {
+			for(int j = 0; j < layerSizes[i]; j++) {
+
+				to.setNeuronBias(i, j, from.getNeuronBias(i, j));
+			}
+		}
+	}
+
+	private void randomizeBiases(NeuralNetwork network) {
+
+		int[] layerSizes = network.getLayerSizes();
+
+		for(int i = 1; i < layerSizes.length; i++) {
+			for(int j = 0; j < layerSizes[i]; j++) {
+
+				network.setNeuronBias(i, j, random.nextDouble() - 0.5);
+			}
+		}
+	}
+
+	private double[][] randomSamples(int numberOfSamples, int size) {
+
+		double[][] samples = new double[numberOfSamples][size];
+
+		for(double[] sample : samples) {
+			for(int i = 0; i < size; i++) {
+
+				sample[i] = random.nextDouble();
+			}
+		}
+
+		return samples;
+	}
+
+	/**
+	 * Draws random inputs until none of them brings a ReLU neuron
+	 * of the network within <code> KINK_MARGIN </code> of its
+	 * kink.
+	 */
+	private double[] randomGradientSample(NeuralNetwork network, boolean sparse) {
+
+		int numberOfInputs = network.getLayerSizes()[0];
+		double[] sample;
+
+		do {
+
+			if(sparse) {
+
+				sample = randomSparseSample(numberOfInputs);
+				int[] indices = nonZeroIndices(sample);
+				network.passSparseInputs(indices, nonZeroValues(sample, indices));
+
+			} else {
+
+				sample = randomSamples(1, numberOfInputs)[0];
+				network.passInputs(sample);
+			}
+
+			network.forwardPropagate();
+
+		} while(nearReluKink(network));
+
+		return sample;
+	}
+
+	private static boolean nearReluKink(NeuralNetwork network) {
+
+		ArrayList<ArrayList<Neuron>> layers = network.getNeuronLayers();
+
+		for(int i = 1; i < layers.size(); i++) {
+			for(Neuron neuron : layers.get(i)) {
+
+				if(neuron.getActivationFunction() == NetworkMath.ActivationFunction.RELU
+						&& Math.abs(neuron.getActivation()) < KINK_MARGIN)
+					return true;
+			}
+		}
+
+		return false;
+	}
+
+	private double[] randomSparseSample(int size) {
+
+		double[] sample = new double[size];
+
+		for(int i = 0; i < size; i++) {
+
+			if(random.nextDouble() < SPARSE_INPUT_DENSITY)
+				sample[i] = random.nextDouble();
+		}
+
+		return sample;
+	}
+
+	private static int[] nonZeroIndices(double[] sample) {
+
+		int count = 0;
+
+		for(double value : sample) {
+
+			if(value != 0)
+				count++;
+		}
+
+		int[] indices = new int[count];
+
+		for(int i = 0, j = 0; i < sample.length; i++) {
+
+			if(sample[i] != 0)
+				indices[j++] = i;
+		}
+
+		return indices;
+	}
+
+	private static double[] nonZeroValues(double[] sample, int[] indices) {
+
+		double[] values = new double[indices.length];
+
+		for(int i = 0; i < indices.length; i++) {
+
+			values[i] = sample[indices[i]];
+		}
+
+		return values;
+	}
+
+	public static void main(String[] args) {
+
+		long seed = args.length > 0 ? Long.parseLong(args[0]) : 1;
+
+		if(!new CorrectnessCheck(new SplittableRandomSource(seed)).run())
+			System.exit(1);
+	}
+}
@@ -0,0 +1,121 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+/**
+ * The outcome of a gradient check: the largest difference found
+ * between an analytic and a numerical derivative, and the weight
+ * or bias where the relative difference was largest.
+ * @see GradientChecker
+ */
+public class GradientCheckResult {
+
+	private static final double RELATIVE_ERROR_FLOOR = 1e-6;
+
+	private int numberOfParameters;
+
+	private double maxAbsoluteError;
+	private double maxRelativeError;
+
+	private int worstLayer;
+	private int worstIndex;
+	private boolean worstIsBias;
+	private double worstAnalyticGradient;
+	private double worstNumericalGradient;
+
+	protected GradientCheckResult() {
+
+		worstLayer = -1;
+		worstIndex = -1;
+	}
+
+	protected void record(int layer, int index, boolean bias, double analyticGradient, double numericalGradient) {
+
+		double absoluteError = Math.abs(analyticGradient - numericalGradient);
+		double scale = Math.abs(analyticGradient) + Math.abs(numericalGradient);
+		double relativeError = absoluteError / Math.max(scale, RELATIVE_ERROR_FLOOR);
+
+		numberOfParameters++;
+		maxAbsoluteError = Math.max(maxAbsoluteError, absoluteError);
+
+		if(worstLayer < 0 || relativeError > maxRelativeError) {
+
+			maxRelativeError = relativeError;
+
+			worstLayer = layer;
+			worstIndex = index;
+			worstIsBias = bias;
+			worstAnalyticGradient = analyticGradient;
+			worstNumericalGradient = numericalGradient;
+		}
+	}
+
+	/**
+	 * Returns whether every derivative agreed within the given
+	 * relative tolerance.
+	 * @param tolerance - the largest acceptable relative error,
+	 * typically around 0.0001.
+	 */
+	public boolean passes(double tolerance) {
+
+		return maxRelativeError <= tolerance;
+	}
+
+	public int getNumberOfParameters() {
+
+		return numberOfParameters;
+	}
+
+	public double getMaxAbsoluteError() {
+
+		return maxAbsoluteError;
+	}
+
+	/**
+	 * Returns the largest value of <code> |analytic - numerical|
+	 * / (|analytic| + |numerical|) </code>. The denominator is
+	 * never taken below 0.000001, so that the rounding noise of
+	 * derivatives that are practically 0 is not mistaken for a
+	 * disagreement.
+	 */
+	public double getMaxRelativeError() {
+
+		return maxRelativeError;
+	}
+
+	/**
+	 * Returns the layer of the weight or bias with the largest
+	 * relative error. For a weight this is the connection layer,
+	 * and for a bias it is the neuron layer.
+	 */
+	public int getWorstLayer() {
+
+		return worstLayer;
+	}
+
+	public int getWorstIndex() {
+
+		return worstIndex;
+	}
+
+	public boolean isWorstBias() {
+
+		return worstIsBias;
+	}
+
+	public double getWorstAnalyticGradient() {
+
+		return worstAnalyticGradient;
+	}
+
+	public double getWorstNumericalGradient() {
+
+		return worstNumericalGradient;
+	}
+
+	@Override
+	public String toString() {
+
+		return String.format("%d parameters, max relative error %.3e, max absolute error %.3e, worst at %s %d/%d (analytic %.6e, numerical %.6e)",
+				numberOfParameters, maxRelativeError, maxAbsoluteError, worstIsBias ? "bias" : "weight", worstLayer, worstIndex,
+				worstAnalyticGradient, worstNumericalGradient);
+	}
+}
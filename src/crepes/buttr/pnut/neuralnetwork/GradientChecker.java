@@ -0,0 +1,218 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+/**
+ * Checks the derivatives computed by <code> backPropagate()
+ * </code> against derivatives estimated numerically with
+ * central finite differences of the square cost. The analytic
+ * derivative of each weight and bias is recovered from the
+ * change <code> backPropagate() </code> makes to it with a
+ * learning speed of 1. Inputs can be passed densely or with
+ * <code> passSparseInputs() </code>, so that the sparse first
+ * layer of both passes is checked as well. The network is left with the weights,
+ * biases and learning speed it had before the check, but its
+ * activations and its average cost are overwritten.
+ */
+public class GradientChecker {
+
+	private double epsilon;
+
+	/**
+	 *
+	 * @param epsilon - the distance by which each weight and bias
+	 * is moved in both directions to estimate its derivative,
+	 * typically 0.00001. At 0.000001 the rounding error of the
+	 * two costs is already large enough to fail some checks of
+	 * correct derivatives.
+	 */
+	public GradientChecker(double epsilon) {
+
+		this.epsilon = epsilon;
+	}
+
+	/**
+	 * Checks every weight and bias of the network on each of
+	 * the given samples.
+	 * @param network - the network to check.
+	 * @param inputs - the input values of each sample.
+	 * @param expectedOutputs - the correct output values of
+	 * each sample.
+	 * @return The largest disagreement found over all of the
+	 * samples.
+	 */
+	public GradientCheckResult check(NeuralNetwork network, double[][] inputs, double[][] expectedOutputs) {
+
+		GradientCheckResult worst = null;
+
+		for(int i = 0; i < inputs.length; i++) {
+
+			GradientCheckResult result = check(network, inputs[i], expectedOutputs[i]);
+
+			if(worst == null || result.getMaxRelativeError() > worst.getMaxRelativeError())
+				worst = result;
+		}
+
+		return worst;
+	}
+
+	/**
+	 * Checks every weight and bias of the network on a single
+	 * sample.
+	 * @param network - the network to check.
+	 * @param inputs - the input values of the sample.
+	 * @param expectedOutputs - the correct output values of the
+	 * sample.
+	 * @return The largest disagreement between the analytic and
+	 * numerical derivatives.
+	 */
+	public GradientCheckResult check(NeuralNetwork network, double[] inputs, double[] expectedOutputs) {
+
+		return check(network, null, inputs, expectedOutputs);
+	}
+
+	/**
+	 * Checks every weight and bias of the network on a single
+	 * sample whose inputs are passed with <code>
+	 * passSparseInputs() </code>.
+	 * @see NeuralNetwork#passSparseInputs(int[], double[])
+	 * @param network - the network to check.
+	 * @param indices - the indices of the non-zero inputs.
+	 * @param values - the values of the non-zero inputs.
+	 * @param expectedOutputs - the correct output values of the
+	 * sample.
+	 * @return The largest disagreement between the analytic and
+	 * numerical derivatives.
+	 */
+	public GradientCheckResult checkSparse(NeuralNetwork network, int[] indices, double[] values, double[] expectedOutputs) {
+
+		return check(network, indices, values, expectedOutputs);
+	}
+
+	private GradientCheckResult check(NeuralNetwork network, int[] indices, double[] inputs, double[] expectedOutputs) {
+
+		int[] layerSizes = network.getLayerSizes();
+
+		double[][] weights = new double[layerSizes.length - 1][];
+		double[][] biases = new double[layerSizes.length][];
+
+		for(int i = 0; i < weights.length; i++) {
+
+			weights[i] = new double[layerSizes[i] * layerSizes[i + 1]];
+
+			for(int j = 0; j < weights[i].length; j++) {
+
+				weights[i][j] = network.getConnectionWeight(i, j);
+			}
+		}
+
+		for(int i = 1; i < layerSizes.length; i++) {
+
+			biases[i] = new double[layerSizes[i]];
+
+			for(int j = 0; j < biases[i].length; j++) {
+
+				biases[i][j] = network.getNeuronBias(i, j);
+			}
+		}
+
+		double learningSpeed = network.learningSpeed;
+
+		network.learningSpeed = 1;
+		pass(network, indices, inputs);
+		network.forwardPropagate();
+		network.passCorrectOutputValues(expectedOutputs);
+		network.backPropagate();
+		network.learningSpeed = learningSpeed;
+
+		double[][] weightGradients = new double[weights.length][];
+		double[][] biasGradients = new double[biases.length][];
+
+		for(int i = 0; i < weights.length; i++) {
+
+			weightGradients[i] = new double[weights[i].length];
+
+			for(int j = 0; j < weights[i].length; j++) {
+
+				weightGradients[i][j] = weights[i][j] - network.getConnectionWeight(i, j);
+			}
+		}
+
+		for(int i = 1; i < biases.length; i++) {
+
+			biasGradients[i] = new double[biases[i].length];
+
+			for(int j = 0; j < biases[i].length; j++) {
+
+				biasGradients[i][j] = biases[i][j] - network.getNeuronBias(i, j);
+			}
+		}
+
+		restore(network, weights, biases);
+
+		GradientCheckResult result = new GradientCheckResult();
+
+		for(int i = 0; i < weights.length; i++) {
+			for(int j = 0; j < weights[i].length; j++) {
+
+				network.setConnectionWeight(i, j, weights[i][j] + epsilon);
+				double costAbove = cost(network, indices, inputs);
+
+				network.setConnectionWeight(i, j, weights[i][j] - epsilon);
+				double costBelow = cost(network, indices, inputs);
+
+				network.setConnectionWeight(i, j, weights[i][j]);
+
+				result.record(i, j, false, weightGradients[i][j], (costAbove - costBelow) / (2 * epsilon));
+			}
+		}
+
+		for(int i = 1; i < biases.length; i++) {
+			for(int j = 0; j < biases[i].length; j++) {
+
+				network.setNeuronBias(i, j, biases[i][j] + epsilon);
+				double costAbove = cost(network, indices, inputs);
+
+				network.setNeuronBias(i, j, biases[i][j] - epsilon);
+				double costBelow = cost(network, indices, inputs);
+
+				network.setNeuronBias(i, j, biases[i][j]);
+
+				result.record(i, j, true, biasGradients[i][j], (costAbove - costBelow) / (2 * epsilon));
+			}
+		}
+
+		return result;
+	}
+
+	private static double cost(NeuralNetwork network, int[] indices, double[] inputs) {
+
+		pass(network, indices, inputs);
+		network.forwardPropagate();
+
+		return network.computeSquareCost();
+	}
+
+	private static void pass(NeuralNetwork network, int[] indices, double[] inputs) {
+
+		if(indices != null)
+			network.passSparseInputs(indices, inputs);
+		else
+			network.passInputs(inputs);
+	}
+
+	private static void restore(NeuralNetwork network, double[][] weights, double[][] biases) {
+
+		for(int i = 0; i < weights.length; i++) {
+			for(int j = 0; j < weights[i].length; j++) {
+
+				network.setConnectionWeight(i, j, weights[i][j]);
+			}
+		}
+
+		for(int i = 1; i < biases.length; i++) {
+			for(int j = 0; j < biases[i].length; j++) {
+
+				network.setNeuronBias(i, j, biases[i][j]);
+			}
+		}
+	}
+}
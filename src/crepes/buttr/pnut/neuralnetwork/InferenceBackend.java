@@ -0,0 +1,41 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+/**
+ * Any implementation that can compute the outputs of a network
+ * for a set of inputs. Alternative ways of running a network,
+ * such as pruned, quantized or shared inference models, are
+ * compared against each other through this interface.
+ * @see BackendComparator
+ */
+public interface InferenceBackend {
+
+	/**
+	 * Propagates the given inputs forward.
+	 * @param inputValues - the values of the input layer.
+	 * @return A new array containing the values of the output
+	 * layer.
+	 */
+	double[] predict(double[] inputValues);
+
+	/**
+	 * Wraps a neural network, which is the reference that other
+	 * backends are checked against. Each prediction overwrites
+	 * the activations of the network.
+	 * @param network - the network to run.
+	 * @return A backend that runs the network.
+	 */
+	static InferenceBackend of(final NeuralNetwork network) {
+
+		return new InferenceBackend() {
+
+			@Override
+			public double[] predict(double[] inputValues) {
+
+				network.passInputs(inputValues);
+				network.forwardPropagate();
+
+				return network.getOutputs();
+			}
+		};
+	}
+}
@@ -0,0 +1,220 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * An immutable snapshot of the weights, biases and activation
+ * functions of a neural network that can be shared by any number
+ * of threads. Unlike <code> NeuralNetwork </code>, which keeps
+ * its activations inside its neurons, an inference model keeps
+ * the activations of each forward pass in a separate workspace.
+ * Callers may supply their own workspace, or let the model borrow
+ * one from an internal pool, which only grows to the largest
+ * number of passes that have run at the same time. The pool does
+ * not use thread locals or locks, so the model can be called from
+ * virtual threads without its memory growing with the number of
+ * threads. Training the original network after the snapshot is
+ * taken does not change the model.
+ */
+public final class InferenceModel implements InferenceBackend {
+
+	private final int[] layerSizes;
+
+	private final double[][] weights;
+	private final double[][] biases;
+	private final NetworkMath.ActivationFunction[][] activationFunctions;
+
+	private final ConcurrentLinkedQueue<InferenceWorkspace> workspacePool;
+
+	/**
+	 * Copies the current parameters of the network. Note: the
+	 * network must not be trained by another thread while the
+	 * copy is being made.
+	 * @param network - the network to copy.
+	 */
+	public InferenceModel(NeuralNetwork network) {
+
+		this.layerSizes = network.getLayerSizes();
+
+		int numberOfLayers = layerSizes.length - 1;
+
+		weights = new double[numberOfLayers][];
+		biases = new double[numberOfLayers][];
+		activationFunctions = new NetworkMath.ActivationFunction[numberOfLayers][];
+
+		for(int i = 0; i < numberOfLayers; i++) {
+
+			double[][] matrix = network.copyWeightMatrix(i);
+			int previousSize = layerSizes[i];
+
+			weights[i] = new double[layerSizes[i + 1] * previousSize];
+
+			for(int j = 0; j < matrix.length; j++) {
+
+				System.arraycopy(matrix[j], 0, weights[i], j * previousSize, previousSize);
+			}
+
+			biases[i] = network.copyBiases(i + 1);
+			activationFunctions[i] = network.copyActivationFunctions(i + 1);
+		}
+
+		workspacePool = new ConcurrentLinkedQueue<InferenceWorkspace>();
+	}
+
+	/**
+	 * Creates a workspace that can be passed to <code>
+	 * predict(double[], InferenceWorkspace, double[]) </code>.
+	 * @return A new workspace sized for this model.
+	 */
+	public InferenceWorkspace createWorkspace() {
+
+		return new InferenceWorkspace(layerSizes);
+	}
+
+	/**
+	 * Propagates the given inputs forward through the model,
+	 * using a workspace borrowed from the model's pool.
+	 * @param inputValues - the values of the input layer.
+	 * @return A new array containing the values of the output
+	 * layer.
+	 */
+	@Override
+	public double[] predict(double[] inputValues) {
+
+		double[] outputs = new double[layerSizes[layerSizes.length - 1]];
+
+		InferenceWorkspace workspace = workspacePool.poll();
+
+		if(workspace == null)
+			workspace = createWorkspace();
+
+		predict(inputValues, workspace, outputs);
+
+		workspacePool.offer(workspace);
+
+		return outputs;
+	}
+
+	/**
+	 * Propagates the given inputs forward through the model
+	 * without allocating any memory.
+	 * @param inputValues - the values of the input layer.
+	 * @param workspace - the scratch space for the activations,
+	 * which must not be in use by another thread.
+	 * @param outputs - the array that receives the values of
+	 * the output layer.
+	 */
+	public void predict(double[] inputValues, InferenceWorkspace workspace, double[] outputs) {
+
+		if(!workspace.fits(layerSizes))
+			throw new IllegalArgumentException("The workspace was not created for a model of this shape.");
+
+		double[] input = workspace.getLayer(0);
+
+		for(int i = 0; i < input.length; i++) {
+
+			if(i < inputValues.length)
+				input[i] = inputValues[i];
+			else
+				input[i] = 0;
+		}
+
+		for(int i = 0; i < weights.length; i++) {
+
+			double[] previous = workspace.getLayer(i);
+			double[] next = workspace.getLayer(i + 1);
+			double[] layerWeights = weights[i];
+			int previousSize = previous.length;
+
+			for(int j = 0; j < next.length; j++) {
+
+				double sum = 0;
+				int rowStart = j * previousSize;
+
+				for(int k = 0; k < previousSize; k++) {
+
+					sum += previous[k] * layerWeights[rowStart + k];
+				}
+
+				next[j] = NetworkMath.activate(activationFunctions[i][j], sum + biases[i][j]);
+			}
+		}
+
+		System.arraycopy(workspace.getLayer(weights.length), 0, outputs, 0, Math.min(outputs.length, layerSizes[weights.length]));
+	}
+
+	/**
+	 * Propagates several inputs forward through the model at
+	 * once. Each weight row is loaded once per layer and applied
+	 * to every sample of the batch, which makes better use of
+	 * the processor cache than predicting the samples one at a
+	 * time. The outputs are identical to those of single
+	 * predictions.
+	 * @param inputValues - the values of the input layer, one
+	 * array per sample.
+	 * @param batchSize - the number of samples to predict, taken
+	 * from the start of the arrays.
+	 * @param workspaces - one workspace per sample, none of which
+	 * may be in use by another thread.
+	 * @param outputs - the arrays that receive the values of the
+	 * output layer, one per sample.
+	 */
+	public void predictBatch(double[][] inputValues, int batchSize, InferenceWorkspace[] workspaces, double[][] outputs) {
+
+		for(int b = 0; b < batchSize; b++) {
+
+			if(!workspaces[b].fits(layerSizes))
+				throw new IllegalArgumentException("The workspace was not created for a model of this shape.");
+
+			double[] input = workspaces[b].getLayer(0);
+
+			for(int i = 0; i < input.length; i++) {
+
+				if(i < inputValues[b].length)
+					input[i] = inputValues[b][i];
+				else
+					input[i] = 0;
+			}
+		}
+
+		for(int i = 0; i < weights.length; i++) {
+
+			double[] layerWeights = weights[i];
+			int previousSize = layerSizes[i];
+
+			for(int j = 0; j < layerSizes[i + 1]; j++) {
+
+				int rowStart = j * previousSize;
+
+				for(int b = 0; b < batchSize; b++) {
+
+					double[] previous = workspaces[b].getLayer(i);
+					double sum = 0;
+
+					for(int k = 0; k < previousSize; k++) {
+
+						sum += previous[k] * layerWeights[rowStart + k];
+					}
+
+					workspaces[b].getLayer(i + 1)[j] = NetworkMath.activate(activationFunctions[i][j], sum + biases[i][j]);
+				}
+			}
+		}
+
+		for(int b = 0; b < batchSize; b++) {
+
+			System.arraycopy(workspaces[b].getLayer(weights.length), 0, outputs[b], 0,
+					Math.min(outputs[b].length, layerSizes[weights.length]));
+		}
+	}
+
+	/**
+	 * Returns the number of neurons in each layer of the model.
+	 * @return A copy of the layer sizes, beginning with the
+	 * input layer and ending with the output layer.
+	 */
+	public int[] getLayerSizes() {
+
+		return layerSizes.clone();
+	}
+}
@@ -0,0 +1,42 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+/**
+ * The scratch space used by one forward pass of an inference
+ * model: an array for the activations of every layer. A
+ * workspace may be reused for any number of passes, but must
+ * not be used by two threads at the same time.
+ * @see InferenceModel#createWorkspace()
+ */
+public final class InferenceWorkspace {
+
+	private final double[][] activations;
+
+	InferenceWorkspace(int[] layerSizes) {
+
+		activations = new double[layerSizes.length][];
+
+		for(int i = 0; i < layerSizes.length; i++) {
+
+			activations[i] = new double[layerSizes[i]];
+		}
+	}
+
+	double[] getLayer(int layer) {
+
+		return activations[layer];
+	}
+
+	boolean fits(int[] layerSizes) {
+
+		if(layerSizes.length != activations.length)
+			return false;
+
+		for(int i = 0; i < layerSizes.length; i++) {
+
+			if(layerSizes[i] != activations[i].length)
+				return false;
+		}
+
+		return true;
+	}
+}
@@ -0,0 +1,213 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Holds the inference model currently used to serve predictions
+ * and replaces it with new versions without stopping the callers.
+ * New parameters are loaded and checked on a background thread,
+ * then swapped in with a single atomic reference update. Each
+ * prediction reads the current version once and runs entirely on
+ * that version's immutable model, so predictions already running
+ * finish on the old version while new ones use the new version,
+ * and no locks are taken on the prediction path. The version that
+ * was replaced is kept so that it can be restored with <code>
+ * rollback() </code>.
+ */
+public class ModelRegistry implements InferenceBackend {
+
+	private final int[] layerSizes;
+
+	private final AtomicReference<State> state;
+
+	private final Executor loadingExecutor;
+
+	private volatile double[][] validationSamples;
+
+	/**
+	 * Creates a registry that loads new versions on the common
+	 * fork join pool.
+	 * @param initialModel - the first version to serve, which
+	 * also fixes the layer sizes every later version must have.
+	 */
+	public ModelRegistry(InferenceModel initialModel) {
+
+		this(initialModel, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 *
+	 * @param initialModel - the first version to serve, which
+	 * also fixes the layer sizes every later version must have.
+	 * @param loadingExecutor - the executor that loads and checks
+	 * new versions.
+	 */
+	public ModelRegistry(InferenceModel initialModel, Executor loadingExecutor) {
+
+		this.layerSizes = initialModel.getLayerSizes();
+		this.state = new AtomicReference<State>(new State(new ModelVersion(initialModel, 1), null, 1));
+		this.loadingExecutor = loadingExecutor;
+	}
+
+	/**
+	 * Propagates the given inputs through the current version.
+	 * @param inputValues - the values of the input layer.
+	 * @return A new array containing the values of the output
+	 * layer.
+	 */
+	@Override
+	public double[] predict(double[] inputValues) {
+
+		return state.get().current.getModel().predict(inputValues);
+	}
+
+	/**
+	 * Returns the version currently being served. Callers that
+	 * make several predictions that must agree with each other
+	 * should read the version once and use its model directly.
+	 */
+	public ModelVersion getCurrentVersion() {
+
+		return state.get().current;
+	}
+
+	/**
+	 * Returns the version that <code> rollback() </code> would
+	 * restore, or <code> null </code> if there is none.
+	 */
+	public ModelVersion getPreviousVersion() {
+
+		return state.get().previous;
+	}
+
+	/**
+	 * Sets inputs that every new version is run on before it is
+	 * published. A version whose outputs on any of them are not
+	 * finite is rejected.
+	 * @param validationSamples - the inputs to check, or <code>
+	 * null </code> to only check the layer sizes.
+	 */
+	public void setValidationSamples(double[][] validationSamples) {
+
+		this.validationSamples = validationSamples;
+	}
+
+	/**
+	 * Checks the given model and makes it the current version.
+	 * @param model - the model to serve.
+	 * @return The newly published version.
+	 * @throws IllegalArgumentException if the model has different
+	 * layer sizes than the registry, or produces outputs that are
+	 * not finite on the validation samples.
+	 */
+	public ModelVersion publish(InferenceModel model) {
+
+		validate(model);
+
+		ModelVersion version;
+		State current;
+
+		do {
+
+			current = state.get();
+			version = new ModelVersion(model, current.lastNumber + 1);
+
+		} while(!state.compareAndSet(current, new State(version, current.current, version.getNumber())));
+
+		return version;
+	}
+
+	/**
+	 * Loads a model on the registry's loading executor, checks
+	 * it and makes it the current version, while the current
+	 * version keeps serving predictions.
+	 * @param loader - builds the new model, for example by
+	 * reading parameters from a file or by taking a snapshot of
+	 * a network that is no longer being trained.
+	 * @return A future that is completed with the published
+	 * version, or completed exceptionally if loading or checking
+	 * the model failed, in which case the current version is
+	 * left in place.
+	 */
+	public CompletableFuture<ModelVersion> publishAsync(final Supplier<InferenceModel> loader) {
+
+		return CompletableFuture.supplyAsync(new Supplier<ModelVersion>() {
+
+			@Override
+			public ModelVersion get() {
+
+				return publish(loader.get());
+			}
+
+		}, loadingExecutor);
+	}
+
+	/**
+	 * Restores the version that was replaced by the most recent
+	 * publish. Only one level of history is kept, so rolling back
+	 * twice in a row is not possible.
+	 * @return The restored version, or <code> null </code> if
+	 * there was no previous version.
+	 */
+	public ModelVersion rollback() {
+
+		State current;
+
+		do {
+
+			current = state.get();
+
+			if(current.previous == null)
+				return null;
+
+		} while(!state.compareAndSet(current, new State(current.previous, null, current.lastNumber)));
+
+		return current.previous;
+	}
+
+	private void validate(InferenceModel model) {
+
+		int[] modelLayerSizes = model.getLayerSizes();
+
+		if(!Arrays.equals(layerSizes, modelLayerSizes))
+			throw new IllegalArgumentException("The model has layer sizes " + Arrays.toString(modelLayerSizes) +
+					" but the registry serves " + Arrays.toString(layerSizes) + ".");
+
+		double[][] samples = validationSamples;
+
+		if(samples == null)
+			return;
+
+		for(int i = 0; i < samples.length; i++) {
+			for(double output : model.predict(samples[i])) {
+
+				if(Double.isNaN(output) || Double.isInfinite(output))
+					throw new IllegalArgumentException("The model produces an output that is not finite on validation sample " + i + ".");
+			}
+		}
+	}
+
+	public int[] getLayerSizes() {
+
+		return layerSizes.clone();
+	}
+
+	private static final class State {
+
+		private final ModelVersion current;
+		private final ModelVersion previous;
+		private final long lastNumber;
+
+		private State(ModelVersion current, ModelVersion previous, long lastNumber) {
+
+			this.current = current;
+			this.previous = previous;
+			this.lastNumber = lastNumber;
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+/**
+ * One published set of parameters in a model registry, along
+ * with the number it was published under.
+ * @see ModelRegistry
+ */
+public final class ModelVersion {
+
+	private final InferenceModel model;
+	private final long number;
+	private final long publishedMillis;
+
+	ModelVersion(InferenceModel model, long number) {
+
+		this.model = model;
+		this.number = number;
+		this.publishedMillis = System.currentTimeMillis();
+	}
+
+	public InferenceModel getModel() {
+
+		return model;
+	}
+
+	/**
+	 * Returns the number of this version. The first model of a
+	 * registry is version 1, and each model published after it
+	 * receives the next number, even if the version before it
+	 * was rolled back, so a number is never reused.
+	 */
+	public long getNumber() {
+
+		return number;
+	}
+
+	public long getPublishedMillis() {
+
+		return publishedMillis;
+	}
+}
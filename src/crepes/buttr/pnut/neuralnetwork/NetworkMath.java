@@ -30,6 +30,50 @@ public class NetworkMath {
 		return sigmoid(activation) * (1 - sigmoid(activation));
 	}
 	
+	protected static double activate(ActivationFunction activationFunction, double activation) {
+		
+	    switch(activationFunction)
+	    {
+	    case RELU:
+		return relu(activation);
+		
+	    case SIGMOID:
+		return sigmoid(activation);
+		
+	    case SOFTMAX:
+		return activation;
+		
+	    default:
+		return activation;
+	    }
+	}
+	
+	/**
+	 * Returns the derivative of an activation function at the
+	 * input that produced the given output, computed from the
+	 * output alone. The derivative of the leaky ReLU only
+	 * depends on the sign of its input, which its output
+	 * shares, and the derivative of the sigmoid is <code>
+	 * output * (1 - output) </code>.
+	 */
+	protected static double derivativeFromOutput(ActivationFunction activationFunction, double output) {
+		
+	    switch(activationFunction)
+	    {
+	    case RELU:
+		return reluPrime(output);
+		
+	    case SIGMOID:
+		return output * (1 - output);
+		
+	    case SOFTMAX:
+		return 1;
+		
+	    default:
+		return 1;
+	    }
+	}
+	
 	//TODO need to add softmax functions here
 	
 	protected static double getNegativeGradient() {
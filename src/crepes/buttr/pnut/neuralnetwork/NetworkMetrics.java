@@ -0,0 +1,215 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Timings, counters and a running cost collected by a neural
+ * network while metrics are enabled. The values are written by
+ * the thread using the network without any synchronization, so
+ * when they are read from another thread, such as through JMX,
+ * they may lag slightly behind.
+ * @see NeuralNetwork#enableMetrics()
+ */
+public class NetworkMetrics implements NetworkMetricsMBean {
+
+	private static final double COST_SMOOTHING = 0.01;
+
+	private long[] forwardNanos;
+	private long[] backwardNanos;
+
+	private long forwardPasses;
+	private long backwardPasses;
+
+	private long firstSampleNanos;
+	private long lastSampleNanos;
+
+	private double runningAverageSquareCost;
+
+	private CopyOnWriteArrayList<NetworkMetricsListener> listeners;
+
+	private ObjectName objectName;
+
+	protected NetworkMetrics(int numberOfConnectionLayers) {
+
+		this.forwardNanos = new long[numberOfConnectionLayers];
+		this.backwardNanos = new long[numberOfConnectionLayers];
+
+		this.listeners = new CopyOnWriteArrayList<NetworkMetricsListener>();
+	}
+
+	protected void recordForwardLayer(int layer, long nanos) {
+
+		forwardNanos[layer] += nanos;
+	}
+
+	protected void recordForwardPass() {
+
+		forwardPasses++;
+	}
+
+	protected void recordBackwardLayer(int layer, long nanos) {
+
+		backwardNanos[layer] += nanos;
+	}
+
+	protected void recordBackwardPass(double squareCost) {
+
+		long now = System.nanoTime();
+
+		if(backwardPasses == 0) {
+
+			firstSampleNanos = now;
+			runningAverageSquareCost = squareCost;
+
+		} else {
+
+			runningAverageSquareCost += COST_SMOOTHING * (squareCost - runningAverageSquareCost);
+		}
+
+		lastSampleNanos = now;
+		backwardPasses++;
+
+		if(!listeners.isEmpty()) {
+
+			for(NetworkMetricsListener listener : listeners) {
+
+				listener.sampleTrained(this);
+			}
+		}
+	}
+
+	public void addListener(NetworkMetricsListener listener) {
+
+		listeners.add(listener);
+	}
+
+	public void removeListener(NetworkMetricsListener listener) {
+
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Registers these metrics with the platform MBean server under
+	 * the name <code> crepes.buttr.pnut:type=NeuralNetwork,name=
+	 * </code> followed by the given name.
+	 * @param name - a name that identifies the network.
+	 * @throws JMException if the metrics cannot be registered,
+	 * for example because the name is already in use.
+	 */
+	public void registerMBean(String name) throws JMException {
+
+		ObjectName objectName = new ObjectName("crepes.buttr.pnut:type=NeuralNetwork,name=" + ObjectName.quote(name));
+
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+
+		this.objectName = objectName;
+	}
+
+	public void unregisterMBean() throws JMException {
+
+		if(objectName != null) {
+
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			objectName = null;
+		}
+	}
+
+	@Override
+	public long getForwardPasses() {
+
+		return forwardPasses;
+	}
+
+	@Override
+	public long getBackwardPasses() {
+
+		return backwardPasses;
+	}
+
+	/**
+	 * Returns the total time spent propagating forward through
+	 * each layer of connections, including the biases and
+	 * activation functions of the neurons they lead into.
+	 */
+	@Override
+	public long[] getForwardNanosPerLayer() {
+
+		return forwardNanos.clone();
+	}
+
+	/**
+	 * Returns the total time spent propagating backward through
+	 * each layer of connections.
+	 */
+	@Override
+	public long[] getBackwardNanosPerLayer() {
+
+		return backwardNanos.clone();
+	}
+
+	@Override
+	public double getAverageForwardNanos() {
+
+		return forwardPasses > 0 ? (double) sum(forwardNanos) / forwardPasses : 0;
+	}
+
+	@Override
+	public double getAverageBackwardNanos() {
+
+		return backwardPasses > 0 ? (double) sum(backwardNanos) / backwardPasses : 0;
+	}
+
+	/**
+	 * Returns the number of samples trained on per second,
+	 * measured from the first to the most recent call to
+	 * <code> backPropagate() </code>.
+	 */
+	@Override
+	public double getSamplesPerSecond() {
+
+		long elapsed = lastSampleNanos - firstSampleNanos;
+
+		return backwardPasses > 1 && elapsed > 0 ? (backwardPasses - 1) * 1e9 / elapsed : 0;
+	}
+
+	/**
+	 * Returns an exponentially weighted average of the square
+	 * cost of the samples trained on, favoring the most recent
+	 * samples.
+	 */
+	@Override
+	public double getRunningAverageSquareCost() {
+
+		return runningAverageSquareCost;
+	}
+
+	@Override
+	public void reset() {
+
+		for(int i = 0; i < forwardNanos.length; i++) {
+
+			forwardNanos[i] = 0;
+			backwardNanos[i] = 0;
+		}
+
+		forwardPasses = 0;
+		backwardPasses = 0;
+		runningAverageSquareCost = 0;
+	}
+
+	private static long sum(long[] values) {
+
+		long total = 0;
+
+		for(long value : values) {
+
+			total += value;
+		}
+
+		return total;
+	}
+}
@@ -0,0 +1,18 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+/**
+ * Receives the metrics of a neural network each time it is
+ * trained on a sample.
+ * @see NetworkMetrics#addListener(NetworkMetricsListener)
+ */
+public interface NetworkMetricsListener {
+
+	/**
+	 * Called on the training thread at the end of every call to
+	 * <code> backPropagate() </code>. Implementations should
+	 * return quickly, since training waits for them.
+	 * @param metrics - the metrics of the network, already
+	 * updated with the sample that was just trained on.
+	 */
+	void sampleTrained(NetworkMetrics metrics);
+}
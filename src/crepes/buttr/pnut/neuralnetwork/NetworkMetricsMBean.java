@@ -0,0 +1,27 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+/**
+ * The management interface through which the metrics of a
+ * neural network are exposed over JMX.
+ * @see NetworkMetrics#registerMBean(String)
+ */
+public interface NetworkMetricsMBean {
+
+	long getForwardPasses();
+
+	long getBackwardPasses();
+
+	long[] getForwardNanosPerLayer();
+
+	long[] getBackwardNanosPerLayer();
+
+	double getAverageForwardNanos();
+
+	double getAverageBackwardNanos();
+
+	double getSamplesPerSecond();
+
+	double getRunningAverageSquareCost();
+
+	void reset();
+}
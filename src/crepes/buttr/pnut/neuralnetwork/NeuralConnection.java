@@ -7,9 +7,7 @@ public class NeuralConnection {
 	
 	private double weight;
 	
-	private NetworkMath.ActivationFunction activationFunction;
-	
-	protected NeuralConnection(Neuron previousNeuron, Neuron nextNeuron, boolean zeroed, NetworkMath.ActivationFunction activationFunction) {
+	protected NeuralConnection(Neuron previousNeuron, Neuron nextNeuron, boolean zeroed, RandomSource random) {
 		
 		this.previousNeuron = previousNeuron;
 		this.nextNeuron = nextNeuron;
@@ -17,9 +15,7 @@ public class NeuralConnection {
 		if(zeroed)
 			this.weight = 0;
 		else
-			this.weight = Math.random() - 0.5;
-		
-		this.activationFunction = activationFunction;
+			this.weight = random.nextDouble() - 0.5;
 	}
 	
 	protected void forwardPropagate() {
@@ -29,30 +25,8 @@ public class NeuralConnection {
 	
 	protected void backPropagate() {
 		
-	    switch(activationFunction)
-	    {
-	    case RELU:
-		
 		previousNeuron.setCostDerivative(previousNeuron.getCostDerivative() + nextNeuron.getCostDerivative() * weight *
-			NetworkMath.reluPrime(previousNeuron.getActivation()));
-		
-		break;
-		
-	    case SIGMOID:
-		
-		previousNeuron.setCostDerivative(previousNeuron.getCostDerivative() + nextNeuron.getCostDerivative() * weight *
-			NetworkMath.sigmoidPrime(previousNeuron.getActivation()));
-		
-		break;
-		
-	    case SOFTMAX:
-		break;
-		
-	    default:
-		break;
-	    }
-		
-		previousNeuron.setBias(previousNeuron.getBias() - previousNeuron.getCostDerivative());
+			NetworkMath.derivativeFromOutput(previousNeuron.getActivationFunction(), previousNeuron.getActivation()));
 		
 		weight -= nextNeuron.getCostDerivative() * previousNeuron.getActivation();
 	}
@@ -11,6 +11,18 @@ public class NeuralNetwork {
 	
 	private double[] expectedValues;
 	
+	private int[] activeInputIndices;
+	private int numberOfActiveInputs;
+	private boolean sparseInputs;
+	
+	private double lastSquareCost;
+	private double accruedSquareCost;
+	private long numberOfTrials;
+	
+	private NetworkMetrics metrics;
+	
+	private long version;
+	
 	protected double learningSpeed;
 	
 	protected NetworkMath.ActivationFunction hiddenActivationFunction;
@@ -32,6 +44,24 @@ public class NeuralNetwork {
 	 */
 	public NeuralNetwork(int[] layerSizes, boolean zeroed) {
 		
+		this(layerSizes, zeroed, new SplittableRandomSource());
+	}
+	
+	/**
+	 * 
+	 * @param layerSizes - an integer array containing the number
+	 * of neurons to be generated for each layer of the neural
+	 * network.
+	 * @param zeroed - if <code> true </code>, the weights of
+	 * all of the neurons within the network will be automatically
+	 * set to 0, and if <code> false </code>, the weights of
+	 * the neurons with be generated randomly.
+	 * @param random - the source of the random weights. Passing
+	 * a seeded source makes the initial weights reproducible.
+	 * @see #NeuralNetwork(int[], boolean)
+	 */
+	public NeuralNetwork(int[] layerSizes, boolean zeroed, RandomSource random) {
+		
 		for(int i = 0; i < layerSizes.length; i++) {
 			
 			if(layerSizes[i] < 1)
@@ -39,10 +69,13 @@ public class NeuralNetwork {
 		}
 		
 		if(layerSizes.length > 1)
-			this.layerSizes = layerSizes;
+			this.layerSizes = layerSizes.clone();
 		else
 			this.layerSizes = new int[]{1, 1};
 		
+		hiddenActivationFunction = NetworkMath.ActivationFunction.RELU;
+		outputActivationFunction = NetworkMath.ActivationFunction.SIGMOID;
+		
 		neurons = new ArrayList<ArrayList<Neuron>>();
 		connections = new ArrayList<ArrayList<NeuralConnection>>();
 		
@@ -50,9 +83,9 @@ public class NeuralNetwork {
 			
 			neurons.add(new ArrayList<Neuron>());
 			
-			for(int j = 0; j < layerSizes[i]; j++) {
+			for(int j = 0; j < this.layerSizes[i]; j++) {
 				
-			    if(j != layerSizes[i] - 1)
+			    if(i != this.layerSizes.length - 1)
 				neurons.get(i).add(new Neuron(hiddenActivationFunction));
 			    else
 				neurons.get(i).add(new Neuron(outputActivationFunction));
@@ -66,15 +99,12 @@ public class NeuralNetwork {
 			for(Neuron previousNeuron : neurons.get(i)) {
 				for(Neuron nextNeuron : neurons.get(i + 1)) {
 					
-					connections.get(i).add(new NeuralConnection(previousNeuron, nextNeuron, zeroed, hiddenActivationFunction));
+					connections.get(i).add(new NeuralConnection(previousNeuron, nextNeuron, zeroed, random));
 				}
 			}
 		}
 		
 		this.expectedValues = new double[neurons.get(neurons.size() - 1).size()];
-		
-		hiddenActivationFunction = NetworkMath.ActivationFunction.RELU;
-		outputActivationFunction = NetworkMath.ActivationFunction.SIGMOID;
 	}
 	
 	/**
@@ -89,6 +119,8 @@ public class NeuralNetwork {
 	 */
 	public void passInputs(double[] inputValues) {
 
+		sparseInputs = false;
+		
 		for(int i = 0; i < neurons.get(0).size(); i++) {
 				
 			if(i < inputValues.length)
@@ -98,6 +130,78 @@ public class NeuralNetwork {
 		}
 	}
 	
+	/**
+	 * Sets the activation values of the neurons of the first
+	 * layer of the neural network from a sparse input vector.
+	 * Every input neuron not listed is set to 0. Until the next
+	 * call to <code> passInputs() </code>, the first layer of
+	 * <code> forwardPropagate() </code> and <code> backPropagate()
+	 * </code> only visits the connections of the listed inputs,
+	 * so their cost is proportional to the number of non-zero
+	 * inputs rather than the size of the input layer. Note: this
+	 * command DOES NOT tell the network to forward propagate.
+	 * @see #forwardPropagate()
+	 * @param indices - the distinct indices of the non-zero
+	 * inputs. Indices outside of the input layer are ignored.
+	 * @param values - the value of each listed input.
+	 */
+	public void passSparseInputs(int[] indices, double[] values) {
+		
+		passSparseInputs(indices, values, 0, Math.min(indices.length, values.length));
+	}
+	
+	/**
+	 * Sets the activation values of the neurons of the first
+	 * layer of the neural network from one row of a sparse
+	 * input batch.
+	 * @see #passSparseInputs(int[], double[])
+	 * @param batch - the batch containing the input vector.
+	 * @param row - the index of the input vector within the
+	 * batch.
+	 */
+	public void passSparseInputs(SparseInputBatch batch, int row) {
+		
+		passSparseInputs(batch.getColumnIndices(), batch.getValues(), batch.getRowStart(row),
+				batch.getRowEnd(row) - batch.getRowStart(row));
+	}
+	
+	private void passSparseInputs(int[] indices, double[] values, int offset, int length) {
+		
+		ArrayList<Neuron> inputLayer = neurons.get(0);
+		
+		if(sparseInputs) {
+			
+			for(int i = 0; i < numberOfActiveInputs; i++) {
+				
+				inputLayer.get(activeInputIndices[i]).setActivation(0);
+			}
+			
+		} else {
+			
+			for(Neuron neuron : inputLayer) {
+				
+				neuron.setActivation(0);
+			}
+		}
+		
+		if(activeInputIndices == null)
+			activeInputIndices = new int[inputLayer.size()];
+		
+		numberOfActiveInputs = 0;
+		
+		for(int i = offset; i < offset + length && numberOfActiveInputs < activeInputIndices.length; i++) {
+			
+			if(indices[i] >= 0 && indices[i] < inputLayer.size()) {
+				
+				inputLayer.get(indices[i]).setActivation(values[i]);
+				activeInputIndices[numberOfActiveInputs] = indices[i];
+				numberOfActiveInputs++;
+			}
+		}
+		
+		sparseInputs = true;
+	}
+	
 	/**
 	 * Tells the network to produce outputs by propagating the
 	 * input values given to it by the <code> passInputs()
@@ -115,9 +219,28 @@ public class NeuralNetwork {
 		
 		for(int i = 0; i < connections.size(); i++) {
 			
-			for(NeuralConnection connection : connections.get(i)) {
+			long layerStart = metrics != null ? System.nanoTime() : 0;
 			
-				connection.forwardPropagate();
+			if(i == 0 && sparseInputs) {
+				
+				int rowLength = neurons.get(1).size();
+				
+				for(int k = 0; k < numberOfActiveInputs; k++) {
+					
+					int rowStart = activeInputIndices[k] * rowLength;
+					
+					for(int j = rowStart; j < rowStart + rowLength; j++) {
+						
+						connections.get(0).get(j).forwardPropagate();
+					}
+				}
+				
+			} else {
+				
+				for(NeuralConnection connection : connections.get(i)) {
+				
+					connection.forwardPropagate();
+				}
 			}
 			
 			for(Neuron neuron : neurons.get(i+1)) {
@@ -125,7 +248,13 @@ public class NeuralNetwork {
 				neuron.addBias();
 				neuron.performActivationFunction();
 			}
+			
+			if(metrics != null)
+				metrics.recordForwardLayer(i, System.nanoTime() - layerStart);
 		}
+		
+		if(metrics != null)
+			metrics.recordForwardPass();
 	}
 	
 	/**
@@ -183,7 +312,10 @@ public class NeuralNetwork {
 				this.expectedValues[i] = 0;
 		}
 		
-		computeSquareCost();
+		lastSquareCost = computeSquareCost();
+		
+		accruedSquareCost += lastSquareCost;
+		numberOfTrials++;
 	}
 	
 	/**
@@ -210,12 +342,28 @@ public class NeuralNetwork {
 		return cost;
 	}
 	
-	//TODO Implement average square cost function, accrued cost divided by a number of trials
+	/**
+	 * Returns the square cost of the network averaged over
+	 * every call to <code> passCorrectOutputValues() </code>
+	 * since the network was created or the average was last
+	 * reset. Each cost is measured against the outputs the
+	 * network had when the correct values were passed.
+	 * @see #resetAverageSquareCost()
+	 * @return The accrued square cost divided by the number
+	 * of trials, or 0 if there have been no trials.
+	 */
 	public double computeAverageSquareCost() {
 		
+		if(numberOfTrials == 0)
+			return 0;
 		
+		return accruedSquareCost / numberOfTrials;
+	}
+	
+	public void resetAverageSquareCost() {
 		
-		return 0;
+		accruedSquareCost = 0;
+		numberOfTrials = 0;
 	}
 	
 	/**
@@ -227,12 +375,29 @@ public class NeuralNetwork {
 	 * derivative, multiplied by the learning speed, from
 	 * the current value of the weight or bias. This brings
 	 * the output of the network closer to the desired
-	 * output.
+	 * output. If the inputs were given by <code>
+	 * passSparseInputs() </code>, only the connections of the
+	 * non-zero inputs are visited in the first layer, since
+	 * the weights of the others would not change.
 	 * @see #passCorrectOutputValues(double[])
+	 * @see #passSparseInputs(int[], double[])
 	 */
 	public void backPropagate() {
 		
+		version++;
+		
 		for(int i = 0; i < neurons.size(); i++) {
+			
+			if(i == 0 && sparseInputs) {
+				
+				for(int k = 0; k < numberOfActiveInputs; k++) {
+					
+					neurons.get(0).get(activeInputIndices[k]).setCostDerivative(0);
+				}
+				
+				continue;
+			}
+			
 			for(int j = 0; j < neurons.get(i).size(); j++) {
 			
 				neurons.get(i).get(j).setCostDerivative(0);
@@ -245,17 +410,93 @@ public class NeuralNetwork {
 		}
 		
 		for(int i = connections.size() - 1; i >= 0; i--) {
-			for(int j = 0; j < connections.get(i).size(); j++) {
+			
+			long layerStart = metrics != null ? System.nanoTime() : 0;
+			
+			if(i == 0 && sparseInputs) {
 				
-				connections.get(i).get(j).backPropagate();
+				int rowLength = neurons.get(1).size();
+				
+				for(int k = 0; k < numberOfActiveInputs; k++) {
+					
+					int rowStart = activeInputIndices[k] * rowLength;
+					
+					for(int j = rowStart; j < rowStart + rowLength; j++) {
+						
+						connections.get(0).get(j).backPropagate();
+					}
+				}
+				
+			} else {
+				
+				for(int j = 0; j < connections.get(i).size(); j++) {
+					
+					connections.get(i).get(j).backPropagate();
+				}
 			}
+			
+			if(i > 0) {
+				
+				for(Neuron neuron : neurons.get(i)) {
+					
+					neuron.setBias(neuron.getBias() - neuron.getCostDerivative());
+				}
+			}
+			
+			if(metrics != null)
+				metrics.recordBackwardLayer(i, System.nanoTime() - layerStart);
 		}
+		
+		if(metrics != null)
+			metrics.recordBackwardPass(lastSquareCost);
+	}
+	
+	/**
+	 * Starts collecting timings, counters and a running cost
+	 * for this network. While metrics are disabled, which is
+	 * the default, the network does no timing at all.
+	 * @return The metrics of the network, which keep being
+	 * updated until <code> disableMetrics() </code> is called.
+	 */
+	public NetworkMetrics enableMetrics() {
+		
+		if(metrics == null)
+			metrics = new NetworkMetrics(connections.size());
+		
+		return metrics;
+	}
+	
+	public void disableMetrics() {
+		
+		metrics = null;
+	}
+	
+	/**
+	 * Returns the metrics of the network, or <code> null
+	 * </code> if metrics are disabled.
+	 * @see #enableMetrics()
+	 */
+	public NetworkMetrics getMetrics() {
+		
+		return metrics;
 	}
 	
 	public void setActivationFunctions(NetworkMath.ActivationFunction hiddenActivationFunction, NetworkMath.ActivationFunction outputActivationFunction)
 	{
 	    this.hiddenActivationFunction = hiddenActivationFunction;
 	    this.outputActivationFunction = outputActivationFunction;
+	    
+	    for(int i = 0; i < neurons.size(); i++) {
+		for(Neuron neuron : neurons.get(i)) {
+		    
+		    if(i != neurons.size() - 1)
+			neuron.setActivationFunction(hiddenActivationFunction);
+		    else
+			neuron.setActivationFunction(outputActivationFunction);
+		}
+	    }
+	    
+	    version++;
 	}
 	
 	/**
@@ -281,6 +522,7 @@ public class NeuralNetwork {
 	public void setNeuronBias(int layer, int index, double bias) {
 		
 		neurons.get(layer).get(index).setBias(bias);
+		version++;
 	}
 	
 	public double getConnectionWeight(int layer, int index) {
@@ -291,6 +533,81 @@ public class NeuralNetwork {
 	public void setConnectionWeight(int layer, int index, double weight) {
 		
 		connections.get(layer).get(index).setWeight(weight);
+		version++;
+	}
+	
+	/**
+	 * Returns a counter that changes every time the weights,
+	 * biases or activation functions of the network are changed,
+	 * either by <code> backPropagate() </code> or by one of the
+	 * setters. Outputs computed while the version stays the
+	 * same are therefore still valid for the same inputs.
+	 * @see OutputCache
+	 */
+	public long getVersion() {
+		
+		return version;
+	}
+	
+	/**
+	 * Returns the number of neurons in each layer of the
+	 * neural network.
+	 * @return A copy of the layer sizes, beginning with the
+	 * input layer and ending with the output layer.
+	 */
+	public int[] getLayerSizes() {
+		
+		return layerSizes.clone();
+	}
+	
+	/**
+	 * Copies the weights of one layer of connections into a
+	 * matrix where each row holds the weights leading into one
+	 * neuron of the next layer.
+	 * @param layer - the index of the connection layer, where
+	 * layer 0 connects the input layer to the first hidden layer.
+	 * @return A matrix indexed by <code> [nextNeuron][previousNeuron]
+	 * </code>.
+	 */
+	protected double[][] copyWeightMatrix(int layer) {
+		
+		int previousSize = neurons.get(layer).size();
+		int nextSize = neurons.get(layer + 1).size();
+		
+		double[][] weights = new double[nextSize][previousSize];
+		
+		for(int i = 0; i < previousSize; i++) {
+			for(int j = 0; j < nextSize; j++) {
+				
+				weights[j][i] = connections.get(layer).get(i * nextSize + j).getWeight();
+			}
+		}
+		
+		return weights;
+	}
+	
+	protected double[] copyBiases(int layer) {
+		
+		double[] biases = new double[neurons.get(layer).size()];
+		
+		for(int i = 0; i < biases.length; i++) {
+			
+			biases[i] = neurons.get(layer).get(i).getBias();
+		}
+		
+		return biases;
+	}
+	
+	protected NetworkMath.ActivationFunction[] copyActivationFunctions(int layer) {
+		
+		NetworkMath.ActivationFunction[] activationFunctions = new NetworkMath.ActivationFunction[neurons.get(layer).size()];
+		
+		for(int i = 0; i < activationFunctions.length; i++) {
+			
+			activationFunctions[i] = neurons.get(layer).get(i).getActivationFunction();
+		}
+		
+		return activationFunctions;
 	}
 	
 	public ArrayList<ArrayList<Neuron>> getNeuronLayers() {
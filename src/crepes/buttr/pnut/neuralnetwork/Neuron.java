@@ -21,26 +21,7 @@ public class Neuron {
 	
 	protected void calculateOutputLayerDerivative(double expectedValue, double learningSpeed) {
 		
-	    switch(activationFunction)
-	    {
-	    case RELU:
-		
-		costDerivative = 2 * (activation - expectedValue) * NetworkMath.reluPrime(activation) * learningSpeed;
-		
-		break;
-		
-	    case SIGMOID:
-		
-		costDerivative = 2 * (activation - expectedValue) * NetworkMath.sigmoidPrime(activation) * learningSpeed;
-		
-		break;
-		
-	    case SOFTMAX:
-		break;
-		
-	    default:
-		break;
-	    }
+		costDerivative = 2 * (activation - expectedValue) * NetworkMath.derivativeFromOutput(activationFunction, activation) * learningSpeed;
 		
 		bias -= costDerivative;
 	}
@@ -74,6 +55,16 @@ public class Neuron {
 	    }
 	}
 	
+	protected NetworkMath.ActivationFunction getActivationFunction() {
+		
+		return activationFunction;
+	}
+	
+	protected void setActivationFunction(NetworkMath.ActivationFunction activationFunction) {
+		
+		this.activationFunction = activationFunction;
+	}
+	
 	protected double getActivation() {
 		
 		return activation;
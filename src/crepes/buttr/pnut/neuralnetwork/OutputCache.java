@@ -0,0 +1,180 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of network outputs, keyed by the exact input
+ * values that produced them. When the cache is full, the least
+ * recently used entry is evicted. Every entry is tied to the
+ * weight version of the network it was computed with; looking
+ * up a different version empties the cache, so outputs computed
+ * before the weights changed are never returned. The cache is
+ * not thread-safe.
+ * @see NeuralNetwork#getVersion()
+ */
+public class OutputCache {
+
+	private final int capacity;
+
+	private final LinkedHashMap<InputKey, double[]> entries;
+	private final InputKey probe;
+
+	private long version;
+
+	private long hits;
+	private long misses;
+	private long invalidations;
+
+	/**
+	 *
+	 * @param capacity - the largest number of outputs that are
+	 * kept.
+	 */
+	public OutputCache(int capacity) {
+
+		this.capacity = Math.max(1, capacity);
+
+		this.entries = new LinkedHashMap<InputKey, double[]>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<InputKey, double[]> eldest) {
+
+				return size() > OutputCache.this.capacity;
+			}
+		};
+
+		this.probe = new InputKey();
+	}
+
+	/**
+	 * Returns the outputs cached for the given inputs.
+	 * @param inputValues - the inputs to look up.
+	 * @param version - the current weight version of the
+	 * network.
+	 * @return The cached outputs, which must not be modified,
+	 * or <code> null </code> if none are cached for these inputs
+	 * and this version.
+	 */
+	public double[] get(double[] inputValues, long version) {
+
+		checkVersion(version);
+
+		probe.set(inputValues);
+
+		double[] outputs = entries.get(probe);
+
+		probe.set(null);
+
+		if(outputs == null)
+			misses++;
+		else
+			hits++;
+
+		return outputs;
+	}
+
+	/**
+	 * Stores a copy of the outputs the network produced for the
+	 * given inputs.
+	 * @param inputValues - the inputs that were propagated.
+	 * @param version - the weight version of the network that
+	 * produced the outputs.
+	 * @param outputs - the outputs of the network.
+	 */
+	public void put(double[] inputValues, long version, double[] outputs) {
+
+		checkVersion(version);
+
+		InputKey key = new InputKey();
+		key.set(inputValues.clone());
+
+		entries.put(key, outputs.clone());
+	}
+
+	private void checkVersion(long version) {
+
+		if(version != this.version) {
+
+			if(!entries.isEmpty()) {
+
+				entries.clear();
+				invalidations++;
+			}
+
+			this.version = version;
+		}
+	}
+
+	public void clear() {
+
+		entries.clear();
+	}
+
+	public int size() {
+
+		return entries.size();
+	}
+
+	public int getCapacity() {
+
+		return capacity;
+	}
+
+	public long getHits() {
+
+		return hits;
+	}
+
+	public long getMisses() {
+
+		return misses;
+	}
+
+	/**
+	 * Returns the number of times the cache was emptied because
+	 * the weights of the network changed.
+	 */
+	public long getInvalidations() {
+
+		return invalidations;
+	}
+
+	/**
+	 * Returns the fraction of lookups that found cached outputs.
+	 * @return A value between 0 and 1.
+	 */
+	public double getHitRate() {
+
+		long lookups = hits + misses;
+
+		return lookups > 0 ? (double) hits / lookups : 0;
+	}
+
+	private static class InputKey {
+
+		private double[] inputValues;
+		private int hash;
+
+		private void set(double[] inputValues) {
+
+			this.inputValues = inputValues;
+			this.hash = Arrays.hashCode(inputValues);
+		}
+
+		@Override
+		public int hashCode() {
+
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+
+			return other instanceof InputKey && Arrays.equals(inputValues, ((InputKey) other).inputValues);
+		}
+	}
+}
@@ -0,0 +1,366 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+import java.util.Arrays;
+
+/**
+ * An inference-only copy of a trained neural network whose
+ * connections with a weight close to 0 have been removed.
+ * The remaining weights of each layer are stored in compressed
+ * sparse row format, one row per neuron of the next layer, so
+ * a forward pass only performs a multiplication for each
+ * connection that survived pruning. The pruned network is a
+ * snapshot: training the original network afterwards does
+ * not change it.
+ */
+public class PrunedNeuralNetwork implements InferenceBackend {
+
+	private int[] layerSizes;
+
+	private int[][] rowPointers;
+	private int[][] columnIndices;
+	private double[][] weights;
+
+	private double[][] biases;
+	private NetworkMath.ActivationFunction[][] activationFunctions;
+
+	private double[][] activations;
+
+	private int[] originalConnections;
+
+	/**
+	 * Prunes every connection of the network whose weight has
+	 * an absolute value below the given threshold.
+	 * @param network - the trained network to copy.
+	 * @param threshold - the smallest weight magnitude that is
+	 * kept.
+	 */
+	public PrunedNeuralNetwork(NeuralNetwork network, double threshold) {
+
+		int numberOfLayers = network.getLayerSizes().length - 1;
+		double[] thresholds = new double[numberOfLayers];
+
+		Arrays.fill(thresholds, threshold);
+
+		build(network, thresholds);
+	}
+
+	private PrunedNeuralNetwork(NeuralNetwork network, double[] thresholds) {
+
+		build(network, thresholds);
+	}
+
+	/**
+	 * Prunes the smallest weights of each layer of the network
+	 * separately, so that roughly the given fraction of every
+	 * layer's connections is removed.
+	 * @param network - the trained network to copy.
+	 * @param sparsity - the fraction of connections to remove
+	 * from each layer, between 0 and 1.
+	 * @return The pruned copy of the network.
+	 */
+	public static PrunedNeuralNetwork pruneToSparsity(NeuralNetwork network, double sparsity) {
+
+		int numberOfLayers = network.getLayerSizes().length - 1;
+		double[] thresholds = new double[numberOfLayers];
+
+		for(int i = 0; i < numberOfLayers; i++) {
+
+			double[][] matrix = network.copyWeightMatrix(i);
+			double[] magnitudes = new double[matrix.length * matrix[0].length];
+
+			for(int j = 0; j < matrix.length; j++) {
+				for(int k = 0; k < matrix[j].length; k++) {
+
+					magnitudes[j * matrix[j].length + k] = Math.abs(matrix[j][k]);
+				}
+			}
+
+			Arrays.sort(magnitudes);
+
+			int cut = (int) Math.round(Math.max(0, Math.min(1, sparsity)) * magnitudes.length);
+
+			if(cut == 0)
+				thresholds[i] = 0;
+			else if(cut == magnitudes.length)
+				thresholds[i] = Double.POSITIVE_INFINITY;
+			else
+				thresholds[i] = magnitudes[cut];
+		}
+
+		return new PrunedNeuralNetwork(network, thresholds);
+	}
+
+	private void build(NeuralNetwork network, double[] thresholds) {
+
+		this.layerSizes = network.getLayerSizes();
+
+		int numberOfLayers = layerSizes.length - 1;
+
+		rowPointers = new int[numberOfLayers][];
+		columnIndices = new int[numberOfLayers][];
+		weights = new double[numberOfLayers][];
+		biases = new double[numberOfLayers][];
+		activationFunctions = new NetworkMath.ActivationFunction[numberOfLayers][];
+		originalConnections = new int[numberOfLayers];
+
+		activations = new double[layerSizes.length][];
+
+		for(int i = 0; i < layerSizes.length; i++) {
+
+			activations[i] = new double[layerSizes[i]];
+		}
+
+		for(int i = 0; i < numberOfLayers; i++) {
+
+			double[][] matrix = network.copyWeightMatrix(i);
+			int kept = 0;
+
+			for(double[] row : matrix) {
+				for(double weight : row) {
+
+					if(weight != 0 && Math.abs(weight) >= thresholds[i])
+						kept++;
+				}
+			}
+
+			rowPointers[i] = new int[matrix.length + 1];
+			columnIndices[i] = new int[kept];
+			weights[i] = new double[kept];
+			originalConnections[i] = layerSizes[i] * layerSizes[i + 1];
+
+			int entry = 0;
+
+			for(int j = 0; j < matrix.length; j++) {
+
+				rowPointers[i][j] = entry;
+
+				for(int k = 0; k < matrix[j].length; k++) {
+
+					if(matrix[j][k] != 0 && Math.abs(matrix[j][k]) >= thresholds[i]) {
+
+						columnIndices[i][entry] = k;
+						weights[i][entry] = matrix[j][k];
+						entry++;
+					}
+				}
+			}
+
+			rowPointers[i][matrix.length] = entry;
+
+			biases[i] = network.copyBiases(i + 1);
+			activationFunctions[i] = network.copyActivationFunctions(i + 1);
+		}
+	}
+
+	/**
+	 * Sets the values of the input layer. Note: this command
+	 * DOES NOT tell the network to forward propagate.
+	 * @see #forwardPropagate()
+	 * @param inputValues - all values to be propagated forward
+	 * by the network.
+	 */
+	public void passInputs(double[] inputValues) {
+
+		for(int i = 0; i < activations[0].length; i++) {
+
+			if(i < inputValues.length)
+				activations[0][i] = inputValues[i];
+			else
+				activations[0][i] = 0;
+		}
+	}
+
+	/**
+	 * Propagates the input values forward through the sparse
+	 * layers of the network.
+	 * @see #passInputs(double[])
+	 */
+	public void forwardPropagate() {
+
+		for(int i = 0; i < weights.length; i++) {
+
+			double[] previous = activations[i];
+			double[] next = activations[i + 1];
+
+			int[] pointers = rowPointers[i];
+			int[] columns = columnIndices[i];
+			double[] values = weights[i];
+
+			for(int j = 0; j < next.length; j++) {
+
+				double sum = 0;
+
+				for(int k = pointers[j]; k < pointers[j + 1]; k++) {
+
+					sum += previous[columns[k]] * values[k];
+				}
+
+				next[j] = NetworkMath.activate(activationFunctions[i][j], sum + biases[i][j]);
+			}
+		}
+	}
+
+	/**
+	 * Passes the given inputs, propagates them forward and
+	 * returns the outputs in a single call.
+	 * @param inputValues - all values to be propagated forward
+	 * by the network.
+	 * @return A new array containing the values of the output
+	 * layer.
+	 */
+	@Override
+	public double[] predict(double[] inputValues) {
+
+		passInputs(inputValues);
+		forwardPropagate();
+
+		return getOutputs();
+	}
+
+	/**
+	 * Returns the values of the output layer.
+	 * @return An array containing the values of the last
+	 * layer of the network.
+	 */
+	public double[] getOutputs() {
+
+		return activations[activations.length - 1].clone();
+	}
+
+	/**
+	 * Returns the fraction of the original connections that
+	 * were removed by pruning.
+	 * @return A value between 0 and 1.
+	 */
+	public double getSparsity() {
+
+		int original = 0;
+		int kept = 0;
+
+		for(int i = 0; i < weights.length; i++) {
+
+			original += originalConnections[i];
+			kept += weights[i].length;
+		}
+
+		return 1 - (double) kept / original;
+	}
+
+	/**
+	 * Returns the fraction of the connections of one layer
+	 * that were removed by pruning.
+	 * @param layer - the index of the connection layer.
+	 * @return A value between 0 and 1.
+	 */
+	public double getLayerSparsity(int layer) {
+
+		return 1 - (double) weights[layer].length / originalConnections[layer];
+	}
+
+	public int getNumberOfConnections() {
+
+		int kept = 0;
+
+		for(double[] layer : weights) {
+
+			kept += layer.length;
+		}
+
+		return kept;
+	}
+
+	/**
+	 * Times forward passes of a dense copy of the original
+	 * network and of this pruned network over the same samples
+	 * and returns how many times faster the pruned network is.
+	 * The dense copy is an <code> InferenceModel </code>, which
+	 * keeps its weights in flat row-major arrays like this
+	 * network does, so the result only reflects the connections
+	 * removed by pruning. At low sparsity it can be below 1,
+	 * because the sparse kernel reads a column index for every
+	 * weight. Both networks are run once over the samples before
+	 * timing begins.
+	 * @see #measureSpeedupOverNeuralNetwork(NeuralNetwork, double[][])
+	 * @param network - the network this one was pruned from,
+	 * which must not have been trained since.
+	 * @param samples - the inputs to propagate.
+	 * @return The time taken by the dense copy divided by the
+	 * time taken by the pruned network.
+	 */
+	public double measureSpeedup(NeuralNetwork network, double[][] samples) {
+
+		InferenceModel dense = new InferenceModel(network);
+		InferenceWorkspace workspace = dense.createWorkspace();
+		double[] outputs = new double[layerSizes[layerSizes.length - 1]];
+
+		for(double[] sample : samples) {
+
+			dense.predict(sample, workspace, outputs);
+
+			passInputs(sample);
+			forwardPropagate();
+		}
+
+		long start = System.nanoTime();
+
+		for(double[] sample : samples) {
+
+			dense.predict(sample, workspace, outputs);
+		}
+
+		long denseTime = System.nanoTime() - start;
+
+		return (double) denseTime / Math.max(1, timeForwardPasses(samples));
+	}
+
+	/**
+	 * Times forward passes of the original object-based network
+	 * and of this pruned network over the same samples. Unlike
+	 * <code> measureSpeedup() </code>, the result combines the
+	 * gain from pruning with the gain from replacing the neuron
+	 * and connection objects with flat arrays, so it is larger
+	 * even when nothing has been pruned. Note: this overwrites
+	 * the activations of the original network.
+	 * @see #measureSpeedup(NeuralNetwork, double[][])
+	 * @param network - the network this one was pruned from.
+	 * @param samples - the inputs to propagate.
+	 * @return The time taken by the original network divided
+	 * by the time taken by the pruned network.
+	 */
+	public double measureSpeedupOverNeuralNetwork(NeuralNetwork network, double[][] samples) {
+
+		for(double[] sample : samples) {
+
+			network.passInputs(sample);
+			network.forwardPropagate();
+
+			passInputs(sample);
+			forwardPropagate();
+		}
+
+		long start = System.nanoTime();
+
+		for(double[] sample : samples) {
+
+			network.passInputs(sample);
+			network.forwardPropagate();
+		}
+
+		long objectTime = System.nanoTime() - start;
+
+		return (double) objectTime / Math.max(1, timeForwardPasses(samples));
+	}
+
+	private long timeForwardPasses(double[][] samples) {
+
+		long start = System.nanoTime();
+
+		for(double[] sample : samples) {
+
+			passInputs(sample);
+			forwardPropagate();
+		}
+
+		return System.nanoTime() - start;
+	}
+}
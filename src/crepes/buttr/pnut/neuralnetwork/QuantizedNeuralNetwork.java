@@ -0,0 +1,346 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+/**
+ * An inference-only copy of a trained neural network whose
+ * weights and activations are stored as 8 bit integers.
+ * Every neuron of the next layer has its own weight scale, and
+ * the scale of the values entering each layer is calibrated from
+ * the largest activation seen over a set of sample inputs.
+ * The weighted sum of each neuron is computed as an integer dot
+ * product; it is only converted back to a floating point number
+ * to apply the activation function before being quantized again
+ * for the next layer. The quantized network is a snapshot:
+ * training the original network afterwards does not change it.
+ */
+public class QuantizedNeuralNetwork implements InferenceBackend {
+
+	private static final int MAX_QUANTIZED_VALUE = 127;
+
+	private int[] layerSizes;
+
+	private byte[][] weights;
+	private double[][] weightScales;
+	private long[][] biases;
+	private double[] inputScales;
+	private NetworkMath.ActivationFunction[][] activationFunctions;
+
+	private byte[][] quantizedActivations;
+	private double[] outputs;
+
+	/**
+	 *
+	 * @param network - the trained network to quantize.
+	 * @param calibrationSamples - representative inputs, used
+	 * to find the range of the values entering every layer.
+	 * @throws IllegalArgumentException if no calibration samples
+	 * are given.
+	 */
+	public QuantizedNeuralNetwork(NeuralNetwork network, double[][] calibrationSamples) {
+
+		if(calibrationSamples == null || calibrationSamples.length == 0)
+			throw new IllegalArgumentException("At least one calibration sample is needed to quantize the network.");
+
+		this.layerSizes = network.getLayerSizes();
+
+		int numberOfLayers = layerSizes.length - 1;
+
+		double[][][] floatWeights = new double[numberOfLayers][][];
+		double[][] floatBiases = new double[numberOfLayers][];
+		activationFunctions = new NetworkMath.ActivationFunction[numberOfLayers][];
+
+		for(int i = 0; i < numberOfLayers; i++) {
+
+			floatWeights[i] = network.copyWeightMatrix(i);
+			floatBiases[i] = network.copyBiases(i + 1);
+			activationFunctions[i] = network.copyActivationFunctions(i + 1);
+		}
+
+		inputScales = calibrate(floatWeights, floatBiases, calibrationSamples);
+
+		weights = new byte[numberOfLayers][];
+		weightScales = new double[numberOfLayers][];
+		biases = new long[numberOfLayers][];
+		quantizedActivations = new byte[layerSizes.length][];
+
+		for(int i = 0; i < layerSizes.length; i++) {
+
+			quantizedActivations[i] = new byte[layerSizes[i]];
+		}
+
+		for(int i = 0; i < numberOfLayers; i++) {
+
+			int previousSize = layerSizes[i];
+			int nextSize = layerSizes[i + 1];
+
+			weights[i] = new byte[nextSize * previousSize];
+			weightScales[i] = new double[nextSize];
+			biases[i] = new long[nextSize];
+
+			for(int j = 0; j < nextSize; j++) {
+
+				double largest = 0;
+
+				for(int k = 0; k < previousSize; k++) {
+
+					largest = Math.max(largest, Math.abs(floatWeights[i][j][k]));
+				}
+
+				weightScales[i][j] = largest > 0 ? largest / MAX_QUANTIZED_VALUE : 1;
+
+				for(int k = 0; k < previousSize; k++) {
+
+					weights[i][j * previousSize + k] = quantize(floatWeights[i][j][k], weightScales[i][j]);
+				}
+
+				biases[i][j] = Math.round(floatBiases[i][j] / (weightScales[i][j] * inputScales[i]));
+			}
+		}
+
+		outputs = new double[layerSizes[numberOfLayers]];
+	}
+
+	private double[] calibrate(double[][][] floatWeights, double[][] floatBiases, double[][] samples) {
+
+		double[] largest = new double[floatWeights.length];
+
+		for(double[] sample : samples) {
+
+			double[] activation = new double[layerSizes[0]];
+
+			System.arraycopy(sample, 0, activation, 0, Math.min(sample.length, activation.length));
+
+			for(int i = 0; i < floatWeights.length; i++) {
+
+				double[] next = new double[layerSizes[i + 1]];
+
+				for(int k = 0; k < activation.length; k++) {
+
+					largest[i] = Math.max(largest[i], Math.abs(activation[k]));
+				}
+
+				for(int j = 0; j < next.length; j++) {
+
+					double sum = 0;
+
+					for(int k = 0; k < activation.length; k++) {
+
+						sum += activation[k] * floatWeights[i][j][k];
+					}
+
+					next[j] = NetworkMath.activate(activationFunctions[i][j], sum + floatBiases[i][j]);
+				}
+
+				activation = next;
+			}
+		}
+
+		double[] scales = new double[largest.length];
+
+		for(int i = 0; i < largest.length; i++) {
+
+			scales[i] = largest[i] > 0 ? largest[i] / MAX_QUANTIZED_VALUE : 1;
+		}
+
+		return scales;
+	}
+
+	private static byte quantize(double value, double scale) {
+
+		long quantized = Math.round(value / scale);
+
+		if(quantized > MAX_QUANTIZED_VALUE)
+			quantized = MAX_QUANTIZED_VALUE;
+		else if(quantized < -MAX_QUANTIZED_VALUE)
+			quantized = -MAX_QUANTIZED_VALUE;
+
+		return (byte) quantized;
+	}
+
+	/**
+	 * Quantizes the given values into the input layer. Note:
+	 * this command DOES NOT tell the network to forward
+	 * propagate.
+	 * @see #forwardPropagate()
+	 * @param inputValues - all values to be propagated forward
+	 * by the network.
+	 */
+	public void passInputs(double[] inputValues) {
+
+		for(int i = 0; i < quantizedActivations[0].length; i++) {
+
+			if(i < inputValues.length)
+				quantizedActivations[0][i] = quantize(inputValues[i], inputScales[0]);
+			else
+				quantizedActivations[0][i] = 0;
+		}
+	}
+
+	/**
+	 * Propagates the quantized input values forward through
+	 * the network using integer dot products.
+	 * @see #passInputs(double[])
+	 */
+	public void forwardPropagate() {
+
+		int lastLayer = weights.length - 1;
+
+		for(int i = 0; i < weights.length; i++) {
+
+			byte[] previous = quantizedActivations[i];
+			byte[] layerWeights = weights[i];
+			int previousSize = previous.length;
+
+			for(int j = 0; j < layerSizes[i + 1]; j++) {
+
+				int sum = 0;
+				int rowStart = j * previousSize;
+
+				for(int k = 0; k < previousSize; k++) {
+
+					sum += layerWeights[rowStart + k] * previous[k];
+				}
+
+				double activation = NetworkMath.activate(activationFunctions[i][j], (biases[i][j] + sum) * weightScales[i][j] * inputScales[i]);
+
+				if(i == lastLayer)
+					outputs[j] = activation;
+				else
+					quantizedActivations[i + 1][j] = quantize(activation, inputScales[i + 1]);
+			}
+		}
+	}
+
+	/**
+	 * Passes the given inputs, propagates them forward and
+	 * returns the outputs in a single call.
+	 * @param inputValues - all values to be propagated forward
+	 * by the network.
+	 * @return A new array containing the values of the output
+	 * layer.
+	 */
+	@Override
+	public double[] predict(double[] inputValues) {
+
+		passInputs(inputValues);
+		forwardPropagate();
+
+		return getOutputs();
+	}
+
+	/**
+	 * Returns the values of the output layer.
+	 * @return An array containing the values of the last
+	 * layer of the network.
+	 */
+	public double[] getOutputs() {
+
+		return outputs.clone();
+	}
+
+	/**
+	 * Returns the number of bytes used to store the weights,
+	 * biases and scales of the quantized network.
+	 */
+	public long getModelBytes() {
+
+		long bytes = 0;
+
+		for(int i = 0; i < weights.length; i++) {
+
+			bytes += weights[i].length + 8L * weightScales[i].length + 8L * biases[i].length;
+		}
+
+		return bytes + 8L * inputScales.length;
+	}
+
+	/**
+	 * Returns the number of bytes the weights and biases of
+	 * the original network occupy as double precision values.
+	 */
+	public long getFloatModelBytes() {
+
+		long bytes = 0;
+
+		for(int i = 0; i < weights.length; i++) {
+
+			bytes += 8L * (weights[i].length + biases[i].length);
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * Returns the mean absolute difference between the outputs
+	 * of the original network and of this quantized network
+	 * over the given samples. Note: this overwrites the
+	 * activations of the original network.
+	 * @param network - the network this one was quantized from.
+	 * @param samples - the inputs to compare on.
+	 * @return The average absolute error per output.
+	 */
+	public double measureAccuracyDelta(NeuralNetwork network, double[][] samples) {
+
+		double error = 0;
+		long count = 0;
+
+		for(double[] sample : samples) {
+
+			network.passInputs(sample);
+			network.forwardPropagate();
+
+			passInputs(sample);
+			forwardPropagate();
+
+			double[] expected = network.getOutputs();
+
+			for(int i = 0; i < expected.length; i++) {
+
+				error += Math.abs(expected[i] - outputs[i]);
+				count++;
+			}
+		}
+
+		return count > 0 ? error / count : 0;
+	}
+
+	/**
+	 * Returns the fraction of the given samples for which the
+	 * original network and this quantized network give their
+	 * highest output on the same neuron. Note: this overwrites
+	 * the activations of the original network.
+	 * @param network - the network this one was quantized from.
+	 * @param samples - the inputs to compare on.
+	 * @return A value between 0 and 1.
+	 */
+	public double measureArgmaxAgreement(NeuralNetwork network, double[][] samples) {
+
+		int agreements = 0;
+
+		for(double[] sample : samples) {
+
+			network.passInputs(sample);
+			network.forwardPropagate();
+
+			passInputs(sample);
+			forwardPropagate();
+
+			if(indexOfLargest(network.getOutputs()) == indexOfLargest(outputs))
+				agreements++;
+		}
+
+		return samples.length > 0 ? (double) agreements / samples.length : 1;
+	}
+
+	private static int indexOfLargest(double[] values) {
+
+		int index = 0;
+
+		for(int i = 1; i < values.length; i++) {
+
+			if(values[i] > values[index])
+				index = i;
+		}
+
+		return index;
+	}
+}
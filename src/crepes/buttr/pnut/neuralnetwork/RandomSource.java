@@ -0,0 +1,53 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+/**
+ * A generator of random numbers used to initialize weights, to
+ * explore and to sample experiences. Networks own their random
+ * source instead of sharing <code> Math.random() </code>, so
+ * seeding the source makes a run reproducible, and threads
+ * training in parallel can each be given an independent stream
+ * from <code> split() </code>. Implementations do not need to
+ * be thread-safe.
+ * @see SplittableRandomSource
+ */
+public interface RandomSource {
+
+	/**
+	 * Returns a uniformly distributed value that is at least 0
+	 * and less than 1.
+	 */
+	double nextDouble();
+
+	/**
+	 * Returns a uniformly distributed value that is at least 0
+	 * and less than the bound.
+	 * @param bound - the exclusive upper bound, which must be
+	 * positive.
+	 */
+	int nextInt(int bound);
+
+	/**
+	 * Creates a new source whose stream is statistically
+	 * independent of this one, for use by another thread. The
+	 * new stream is determined by the state of this source, so
+	 * splitting a seeded source is reproducible.
+	 */
+	RandomSource split();
+
+	/**
+	 * Fills an array with uniformly distributed values that are
+	 * at least 0 and less than the bound.
+	 * @param destination - the array that receives the values.
+	 * @param count - the number of values to generate, taken
+	 * from the start of the array.
+	 * @param bound - the exclusive upper bound, which must be
+	 * positive.
+	 */
+	default void nextInts(int[] destination, int count, int bound) {
+
+		for(int i = 0; i < count; i++) {
+
+			destination[i] = nextInt(bound);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+/**
+ * A batch of sparse input vectors stored in compressed sparse
+ * row (CSR) format. Row <code> r </code> of the batch consists
+ * of the input indices <code> columnIndices[rowPointers[r]] </code>
+ * through <code> columnIndices[rowPointers[r + 1] - 1] </code> and
+ * their matching entries in <code> values </code>. Any input
+ * index not listed for a row is treated as 0.
+ * @see NeuralNetwork#passSparseInputs(SparseInputBatch, int)
+ */
+public class SparseInputBatch {
+
+	private int[] rowPointers;
+	private int[] columnIndices;
+	private double[] values;
+
+	/**
+	 *
+	 * @param rowPointers - an array with one more element than
+	 * the number of rows in the batch, where element <code> r
+	 * </code> is the offset of the first non-zero entry of row
+	 * <code> r </code> and the last element is the total number
+	 * of non-zero entries.
+	 * @param columnIndices - the input index of each non-zero
+	 * entry. The indices within a row must be distinct.
+	 * @param values - the value of each non-zero entry.
+	 */
+	public SparseInputBatch(int[] rowPointers, int[] columnIndices, double[] values) {
+
+		if(rowPointers.length < 1 || columnIndices.length != values.length
+				|| rowPointers[rowPointers.length - 1] != columnIndices.length)
+			throw new IllegalArgumentException("Malformed compressed sparse row batch.");
+
+		this.rowPointers = rowPointers;
+		this.columnIndices = columnIndices;
+		this.values = values;
+	}
+
+	/**
+	 * Builds a batch from dense input vectors, keeping only
+	 * their non-zero entries.
+	 * @param denseRows - the input vectors, one per row.
+	 * @return A batch containing the non-zero entries of
+	 * every row.
+	 */
+	public static SparseInputBatch fromDense(double[][] denseRows) {
+
+		int nonZeros = 0;
+
+		for(double[] row : denseRows) {
+			for(double value : row) {
+
+				if(value != 0)
+					nonZeros++;
+			}
+		}
+
+		int[] rowPointers = new int[denseRows.length + 1];
+		int[] columnIndices = new int[nonZeros];
+		double[] values = new double[nonZeros];
+
+		int entry = 0;
+
+		for(int i = 0; i < denseRows.length; i++) {
+
+			rowPointers[i] = entry;
+
+			for(int j = 0; j < denseRows[i].length; j++) {
+
+				if(denseRows[i][j] != 0) {
+
+					columnIndices[entry] = j;
+					values[entry] = denseRows[i][j];
+					entry++;
+				}
+			}
+		}
+
+		rowPointers[denseRows.length] = entry;
+
+		return new SparseInputBatch(rowPointers, columnIndices, values);
+	}
+
+	public int getNumberOfRows() {
+
+		return rowPointers.length - 1;
+	}
+
+	public int getNumberOfNonZeros() {
+
+		return columnIndices.length;
+	}
+
+	protected int getRowStart(int row) {
+
+		return rowPointers[row];
+	}
+
+	protected int getRowEnd(int row) {
+
+		return rowPointers[row + 1];
+	}
+
+	protected int[] getColumnIndices() {
+
+		return columnIndices;
+	}
+
+	protected double[] getValues() {
+
+		return values;
+	}
+}
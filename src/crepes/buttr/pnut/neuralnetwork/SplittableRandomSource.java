@@ -0,0 +1,65 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+import java.util.SplittableRandom;
+
+/**
+ * The default random source, backed by a <code> SplittableRandom
+ * </code>. It is fast, has no synchronization, and produces the
+ * same sequence every time it is created with the same seed.
+ */
+public class SplittableRandomSource implements RandomSource {
+
+	private final SplittableRandom random;
+
+	/**
+	 * Creates a source with an unpredictable seed.
+	 */
+	public SplittableRandomSource() {
+
+		this(new SplittableRandom());
+	}
+
+	/**
+	 * Creates a source that always produces the same sequence
+	 * for the same seed.
+	 * @param seed - the seed of the generator.
+	 */
+	public SplittableRandomSource(long seed) {
+
+		this(new SplittableRandom(seed));
+	}
+
+	private SplittableRandomSource(SplittableRandom random) {
+
+		this.random = random;
+	}
+
+	@Override
+	public double nextDouble() {
+
+		return random.nextDouble();
+	}
+
+	@Override
+	public int nextInt(int bound) {
+
+		return random.nextInt(bound);
+	}
+
+	@Override
+	public RandomSource split() {
+
+		return new SplittableRandomSource(random.split());
+	}
+
+	@Override
+	public void nextInts(int[] destination, int count, int bound) {
+
+		SplittableRandom random = this.random;
+
+		for(int i = 0; i < count; i++) {
+
+			destination[i] = random.nextInt(bound);
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package crepes.buttr.pnut.neuralnetwork;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A random source that may be shared by any number of threads,
+ * each of which draws from its own <code> ThreadLocalRandom
+ * </code> stream. It cannot be seeded, so it is meant for
+ * places where reproducibility does not matter, such as
+ * breaking ties while serving requests.
+ */
+public final class ThreadLocalRandomSource implements RandomSource {
+
+	private static final ThreadLocalRandomSource INSTANCE = new ThreadLocalRandomSource();
+
+	private ThreadLocalRandomSource() {
+
+	}
+
+	public static RandomSource current() {
+
+		return INSTANCE;
+	}
+
+	@Override
+	public double nextDouble() {
+
+		return ThreadLocalRandom.current().nextDouble();
+	}
+
+	@Override
+	public int nextInt(int bound) {
+
+		return ThreadLocalRandom.current().nextInt(bound);
+	}
+
+	/**
+	 * Returns a new <code> SplittableRandomSource </code> seeded
+	 * from the calling thread's stream.
+	 */
+	@Override
+	public RandomSource split() {
+
+		return new SplittableRandomSource(ThreadLocalRandom.current().nextLong());
+	}
+}
@@ -0,0 +1,97 @@
+package crepes.buttr.pnut.training;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads training records from a binary file through a file
+ * channel. The file is a sequence of fixed size records, each
+ * made up of the input values of one sample followed by its
+ * expected output values, stored as little-endian 8 byte
+ * floating point numbers with no header or padding.
+ */
+public class BinaryRecordReader implements RecordReader {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private FileChannel channel;
+	private ByteBuffer buffer;
+
+	private int recordBytes;
+	private boolean endOfFile;
+
+	/**
+	 *
+	 * @param path - the file to read.
+	 * @param numberOfInputs - the number of input values in
+	 * each record.
+	 * @param numberOfTargets - the number of expected output
+	 * values in each record.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public BinaryRecordReader(Path path, int numberOfInputs, int numberOfTargets) throws IOException {
+
+		this.recordBytes = 8 * (numberOfInputs + numberOfTargets);
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, recordBytes)).order(ByteOrder.LITTLE_ENDIAN);
+
+		reset();
+	}
+
+	@Override
+	public boolean readRecord(double[] inputs, double[] targets) throws IOException {
+
+		if(8 * (inputs.length + targets.length) != recordBytes)
+			throw new IllegalArgumentException("The arrays do not match the record size of the file.");
+
+		while(buffer.remaining() < recordBytes && !endOfFile) {
+
+			buffer.compact();
+
+			if(channel.read(buffer) < 0)
+				endOfFile = true;
+
+			buffer.flip();
+		}
+
+		if(buffer.remaining() < recordBytes) {
+
+			if(buffer.hasRemaining())
+				throw new IOException("The file ends with an incomplete record of " + buffer.remaining() + " bytes.");
+
+			return false;
+		}
+
+		for(int i = 0; i < inputs.length; i++) {
+
+			inputs[i] = buffer.getDouble();
+		}
+
+		for(int i = 0; i < targets.length; i++) {
+
+			targets[i] = buffer.getDouble();
+		}
+
+		return true;
+	}
+
+	@Override
+	public void reset() throws IOException {
+
+		channel.position(0);
+		buffer.clear();
+		buffer.flip();
+
+		endOfFile = false;
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		channel.close();
+	}
+}
@@ -0,0 +1,248 @@
+package crepes.buttr.pnut.training;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads training records from a comma separated text file
+ * through a file channel. Each non-blank line holds the input
+ * values of one sample followed by its expected output values;
+ * any further fields on the line are ignored.
+ */
+public class CsvRecordReader implements RecordReader {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int MAX_FAST_DIGITS = 15;
+
+	private static final double[] POWERS_OF_TEN = new double[MAX_FAST_DIGITS + 1];
+
+	static {
+
+		POWERS_OF_TEN[0] = 1;
+
+		for(int i = 1; i < POWERS_OF_TEN.length; i++) {
+
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private FileChannel channel;
+	private ByteBuffer buffer;
+
+	private boolean hasHeader;
+	private boolean endOfFile;
+	private long lineNumber;
+
+	private char[] field;
+
+	/**
+	 *
+	 * @param path - the file to read.
+	 * @param hasHeader - if <code> true </code>, the first line
+	 * of the file is skipped.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public CsvRecordReader(Path path, boolean hasHeader) throws IOException {
+
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		this.hasHeader = hasHeader;
+		this.field = new char[64];
+
+		reset();
+	}
+
+	@Override
+	public boolean readRecord(double[] inputs, double[] targets) throws IOException {
+
+		int needed = inputs.length + targets.length;
+
+		while(true) {
+
+			int fields = 0;
+			int length = 0;
+			boolean lineHasContent = false;
+			int next;
+
+			do {
+
+				next = nextByte();
+
+				if(next == ',' || next == '\n' || next == -1) {
+
+					if(lineHasContent || next == ',') {
+
+						if(fields < inputs.length)
+							inputs[fields] = parseField(length);
+						else if(fields < needed)
+							targets[fields - inputs.length] = parseField(length);
+
+						fields++;
+					}
+
+					length = 0;
+
+				} else if(next != '\r') {
+
+					if(length == field.length) {
+
+						char[] larger = new char[field.length * 2];
+						System.arraycopy(field, 0, larger, 0, length);
+						field = larger;
+					}
+
+					field[length] = (char) next;
+					length++;
+
+					if(next != ' ' && next != '\t')
+						lineHasContent = true;
+				}
+
+			} while(next != '\n' && next != -1);
+
+			lineNumber++;
+
+			if(fields == 0) {
+
+				if(next == -1)
+					return false;
+
+				continue;
+			}
+
+			if(fields < needed)
+				throw new IOException("Line " + lineNumber + " has " + fields + " fields but " + needed + " are required.");
+
+			return true;
+		}
+	}
+
+	@Override
+	public void reset() throws IOException {
+
+		channel.position(0);
+		buffer.clear();
+		buffer.flip();
+
+		endOfFile = false;
+		lineNumber = 0;
+
+		if(hasHeader) {
+
+			int next;
+
+			do {
+
+				next = nextByte();
+
+			} while(next != '\n' && next != -1);
+
+			lineNumber++;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		channel.close();
+	}
+
+	private int nextByte() throws IOException {
+
+		if(!buffer.hasRemaining()) {
+
+			if(endOfFile)
+				return -1;
+
+			buffer.clear();
+
+			int read = 0;
+
+			while(read == 0) {
+
+				read = channel.read(buffer);
+			}
+
+			buffer.flip();
+
+			if(read < 0) {
+
+				endOfFile = true;
+				return -1;
+			}
+		}
+
+		return buffer.get() & 0xFF;
+	}
+
+	private double parseField(int length) throws IOException {
+
+		int start = 0;
+		int end = length;
+
+		while(start < end && (field[start] == ' ' || field[start] == '\t'))
+			start++;
+
+		while(end > start && (field[end - 1] == ' ' || field[end - 1] == '\t'))
+			end--;
+
+		if(start == end)
+			throw new IOException("Line " + (lineNumber + 1) + " has an empty field.");
+
+		int position = start;
+		boolean negative = false;
+
+		if(field[position] == '-' || field[position] == '+') {
+
+			negative = field[position] == '-';
+			position++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		int fractionDigits = 0;
+		boolean seenPoint = false;
+		boolean simple = position < end;
+
+		for(; position < end && simple; position++) {
+
+			char character = field[position];
+
+			if(character >= '0' && character <= '9') {
+
+				mantissa = mantissa * 10 + (character - '0');
+				digits++;
+
+				if(seenPoint)
+					fractionDigits++;
+
+			} else if(character == '.' && !seenPoint) {
+
+				seenPoint = true;
+
+			} else {
+
+				simple = false;
+			}
+		}
+
+		if(simple && digits > 0 && digits <= MAX_FAST_DIGITS) {
+
+			double value = mantissa / POWERS_OF_TEN[fractionDigits];
+
+			return negative ? -value : value;
+		}
+
+		try {
+
+			return Double.parseDouble(new String(field, start, end - start));
+
+		} catch(NumberFormatException e) {
+
+			throw new IOException("Line " + (lineNumber + 1) + " has a field that is not a number.", e);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package crepes.buttr.pnut.training;
+
+/**
+ * The measurements taken while training a network for one
+ * pass over a dataset.
+ */
+public class EpochStatistics {
+
+	private int epoch;
+	private long numberOfSamples;
+	private long numberOfBatches;
+	private long elapsedNanos;
+	private long inputWaitNanos;
+	private double totalSquareCost;
+
+	EpochStatistics(int epoch, long numberOfSamples, long numberOfBatches, long elapsedNanos, long inputWaitNanos,
+			double totalSquareCost) {
+
+		this.epoch = epoch;
+		this.numberOfSamples = numberOfSamples;
+		this.numberOfBatches = numberOfBatches;
+		this.elapsedNanos = elapsedNanos;
+		this.inputWaitNanos = inputWaitNanos;
+		this.totalSquareCost = totalSquareCost;
+	}
+
+	public int getEpoch() {
+
+		return epoch;
+	}
+
+	public long getNumberOfSamples() {
+
+		return numberOfSamples;
+	}
+
+	public long getNumberOfBatches() {
+
+		return numberOfBatches;
+	}
+
+	public long getElapsedNanos() {
+
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns the time the training thread spent waiting for
+	 * the reading thread to deliver a batch. A value close to
+	 * the elapsed time means training is limited by reading
+	 * and parsing rather than by the network.
+	 */
+	public long getInputWaitNanos() {
+
+		return inputWaitNanos;
+	}
+
+	public double getSamplesPerSecond() {
+
+		return elapsedNanos > 0 ? numberOfSamples * 1e9 / elapsedNanos : 0;
+	}
+
+	/**
+	 * Returns the square cost of the network averaged over
+	 * every sample of the epoch, each measured before the
+	 * network was trained on it.
+	 */
+	public double getAverageSquareCost() {
+
+		return numberOfSamples > 0 ? totalSquareCost / numberOfSamples : 0;
+	}
+
+	@Override
+	public String toString() {
+
+		return String.format("epoch %d: %d samples in %d batches, %.1f samples/s, %.1f%% waiting on input, average cost %.6f",
+				epoch, numberOfSamples, numberOfBatches, getSamplesPerSecond(),
+				elapsedNanos > 0 ? 100.0 * inputWaitNanos / elapsedNanos : 0, getAverageSquareCost());
+	}
+}
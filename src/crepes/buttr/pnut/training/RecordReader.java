@@ -0,0 +1,33 @@
+package crepes.buttr.pnut.training;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A source of training records, each made up of the input
+ * values of one sample followed by its expected output values.
+ * Readers fill arrays given to them instead of allocating new
+ * ones, so a record can be read without creating garbage.
+ */
+public interface RecordReader extends Closeable {
+
+	/**
+	 * Reads the next record of the dataset.
+	 * @param inputs - the array that receives the input values
+	 * of the record.
+	 * @param targets - the array that receives the expected
+	 * output values of the record.
+	 * @return <code> true </code> if a record was read, or
+	 * <code> false </code> if the end of the dataset was reached.
+	 * @throws IOException if the dataset cannot be read or a
+	 * record is malformed.
+	 */
+	boolean readRecord(double[] inputs, double[] targets) throws IOException;
+
+	/**
+	 * Moves the reader back to the first record of the dataset,
+	 * so that it can be read again for the next epoch.
+	 * @throws IOException if the dataset cannot be rewound.
+	 */
+	void reset() throws IOException;
+}
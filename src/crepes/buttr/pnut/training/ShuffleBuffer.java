@@ -0,0 +1,90 @@
+package crepes.buttr.pnut.training;
+
+import crepes.buttr.pnut.neuralnetwork.RandomSource;
+
+/**
+ * Shuffles a stream of records using a bounded amount of memory.
+ * Records are held in a fixed number of slots; once every slot
+ * is full, each new record replaces a randomly chosen one, which
+ * is handed on in its place. The records are therefore only
+ * shuffled within a window the size of the buffer.
+ */
+class ShuffleBuffer {
+
+	private double[][] inputs;
+	private double[][] targets;
+
+	private int size;
+
+	private RandomSource random;
+
+	ShuffleBuffer(int capacity, int numberOfInputs, int numberOfTargets, RandomSource random) {
+
+		this.inputs = new double[capacity][numberOfInputs];
+		this.targets = new double[capacity][numberOfTargets];
+		this.random = random;
+	}
+
+	/**
+	 * Adds a record to the buffer. If the buffer was already
+	 * full, a random record is removed and copied into the
+	 * output arrays.
+	 * @return <code> true </code> if a record was copied into
+	 * the output arrays.
+	 */
+	boolean add(double[] recordInputs, double[] recordTargets, double[] outputInputs, double[] outputTargets) {
+
+		if(inputs.length == 0) {
+
+			copy(recordInputs, recordTargets, outputInputs, outputTargets);
+			return true;
+		}
+
+		if(size < inputs.length) {
+
+			copy(recordInputs, recordTargets, inputs[size], targets[size]);
+			size++;
+			return false;
+		}
+
+		int slot = random.nextInt(size);
+
+		copy(inputs[slot], targets[slot], outputInputs, outputTargets);
+		copy(recordInputs, recordTargets, inputs[slot], targets[slot]);
+
+		return true;
+	}
+
+	/**
+	 * Removes a random record from the buffer and copies it into
+	 * the output arrays.
+	 * @return <code> false </code> if the buffer was empty.
+	 */
+	boolean drain(double[] outputInputs, double[] outputTargets) {
+
+		if(size == 0)
+			return false;
+
+		int slot = random.nextInt(size);
+
+		copy(inputs[slot], targets[slot], outputInputs, outputTargets);
+
+		size--;
+
+		double[] swap = inputs[slot];
+		inputs[slot] = inputs[size];
+		inputs[size] = swap;
+
+		swap = targets[slot];
+		targets[slot] = targets[size];
+		targets[size] = swap;
+
+		return true;
+	}
+
+	private static void copy(double[] fromInputs, double[] fromTargets, double[] toInputs, double[] toTargets) {
+
+		System.arraycopy(fromInputs, 0, toInputs, 0, toInputs.length);
+		System.arraycopy(fromTargets, 0, toTargets, 0, toTargets.length);
+	}
+}
@@ -0,0 +1,303 @@
+package crepes.buttr.pnut.training;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import crepes.buttr.pnut.neuralnetwork.NeuralNetwork;
+import crepes.buttr.pnut.neuralnetwork.RandomSource;
+import crepes.buttr.pnut.neuralnetwork.SplittableRandomSource;
+
+/**
+ * Trains a neural network on a dataset that is streamed from a
+ * record reader instead of being held in memory. A background
+ * thread reads and parses records, shuffles them through a
+ * bounded shuffle buffer and packs them into batches, while the
+ * calling thread trains the network on the batches that are
+ * already prepared. At most a fixed number of prepared batches
+ * are queued at once, and all of the batches are allocated up
+ * front and reused, so memory use does not depend on the size
+ * of the dataset.
+ */
+public class StreamingTrainer {
+
+	private NeuralNetwork network;
+
+	private int numberOfInputs;
+	private int numberOfTargets;
+
+	private int batchSize;
+	private int shuffleBufferSize;
+	private int prefetchDepth;
+
+	private RandomSource random;
+
+	private int numberOfEpochs;
+
+	private volatile Throwable readFailure;
+
+	/**
+	 *
+	 * @param network - the network to train.
+	 * @param batchSize - the number of samples handed from the
+	 * reading thread to the training thread at a time.
+	 * @param shuffleBufferSize - the number of records held for
+	 * shuffling. A value of 0 trains on the records in the order
+	 * they are read.
+	 * @param prefetchDepth - the largest number of prepared
+	 * batches that may wait for the training thread.
+	 */
+	public StreamingTrainer(NeuralNetwork network, int batchSize, int shuffleBufferSize, int prefetchDepth) {
+
+		int[] layerSizes = network.getLayerSizes();
+
+		this.network = network;
+		this.numberOfInputs = layerSizes[0];
+		this.numberOfTargets = layerSizes[layerSizes.length - 1];
+
+		this.batchSize = Math.max(1, batchSize);
+		this.shuffleBufferSize = Math.max(0, shuffleBufferSize);
+		this.prefetchDepth = Math.max(1, prefetchDepth);
+
+		this.random = new SplittableRandomSource();
+	}
+
+	/**
+	 * Trains the network for the given number of passes over
+	 * the dataset, rewinding the reader before each pass.
+	 * @param reader - the source of the training records.
+	 * @param epochs - the number of passes over the dataset.
+	 * @return The statistics of every epoch, in order.
+	 * @throws IOException if the dataset cannot be read.
+	 */
+	public List<EpochStatistics> train(RecordReader reader, int epochs) throws IOException {
+
+		List<EpochStatistics> statistics = new ArrayList<EpochStatistics>();
+
+		for(int i = 0; i < epochs; i++) {
+
+			reader.reset();
+			statistics.add(trainEpoch(reader));
+		}
+
+		return statistics;
+	}
+
+	/**
+	 * Trains the network on every remaining record of the
+	 * reader, one sample at a time. If the reader fails, training
+	 * stops at the next batch and the failure is thrown, but the
+	 * samples trained before then have already changed the
+	 * network.
+	 * @param reader - the source of the training records.
+	 * @return The statistics of the epoch.
+	 * @throws IOException if the dataset cannot be read.
+	 */
+	public EpochStatistics trainEpoch(final RecordReader reader) throws IOException {
+
+		final BlockingQueue<TrainingBatch> freeBatches = new ArrayBlockingQueue<TrainingBatch>(prefetchDepth + 2);
+		final BlockingQueue<TrainingBatch> readyBatches = new ArrayBlockingQueue<TrainingBatch>(prefetchDepth);
+
+		for(int i = 0; i < prefetchDepth + 2; i++) {
+
+			freeBatches.add(new TrainingBatch(batchSize, numberOfInputs, numberOfTargets));
+		}
+
+		readFailure = null;
+
+		final RandomSource shuffleRandom = random.split();
+
+		Thread readingThread = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+
+				readBatches(reader, shuffleRandom, freeBatches, readyBatches);
+			}
+
+		}, "streaming-trainer-reader");
+
+		readingThread.setDaemon(true);
+
+		long numberOfSamples = 0;
+		long numberOfBatches = 0;
+		long inputWaitNanos = 0;
+		double totalSquareCost = 0;
+
+		long start = System.nanoTime();
+
+		readingThread.start();
+
+		try {
+
+			while(true) {
+
+				long waitStart = System.nanoTime();
+				TrainingBatch batch = readyBatches.take();
+				inputWaitNanos += System.nanoTime() - waitStart;
+
+				if(readFailure != null)
+					break;
+
+				for(int i = 0; i < batch.getSize(); i++) {
+
+					network.passInputs(batch.getInputs(i));
+					network.forwardPropagate();
+					network.passCorrectOutputValues(batch.getTargets(i));
+
+					totalSquareCost += network.computeSquareCost();
+
+					network.backPropagate();
+				}
+
+				numberOfSamples += batch.getSize();
+
+				if(batch.getSize() > 0)
+					numberOfBatches++;
+
+				if(batch.isLast())
+					break;
+
+				freeBatches.put(batch);
+			}
+
+			readingThread.interrupt();
+			readingThread.join();
+
+		} catch(InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Training was interrupted.");
+
+		} finally {
+
+			readingThread.interrupt();
+		}
+
+		Throwable failure = readFailure;
+
+		if(failure instanceof Error)
+			throw (Error) failure;
+		else if(failure instanceof IOException)
+			throw (IOException) failure;
+		else if(failure != null)
+			throw new IOException("The dataset could not be read.", failure);
+
+		numberOfEpochs++;
+
+		return new EpochStatistics(numberOfEpochs, numberOfSamples, numberOfBatches, System.nanoTime() - start,
+				inputWaitNanos, totalSquareCost);
+	}
+
+	private void readBatches(RecordReader reader, RandomSource shuffleRandom, BlockingQueue<TrainingBatch> freeBatches,
+			BlockingQueue<TrainingBatch> readyBatches) {
+
+		TrainingBatch batch = null;
+
+		try {
+
+			ShuffleBuffer shuffleBuffer = new ShuffleBuffer(shuffleBufferSize, numberOfInputs, numberOfTargets, shuffleRandom);
+
+			double[] recordInputs = new double[numberOfInputs];
+			double[] recordTargets = new double[numberOfTargets];
+
+			batch = takeEmptyBatch(freeBatches);
+
+			while(reader.readRecord(recordInputs, recordTargets)) {
+
+				int sample = batch.getSize();
+
+				if(shuffleBuffer.add(recordInputs, recordTargets, batch.getInputs(sample), batch.getTargets(sample)))
+					batch = addSample(batch, freeBatches, readyBatches);
+			}
+
+			while(shuffleBuffer.drain(batch.getInputs(batch.getSize()), batch.getTargets(batch.getSize()))) {
+
+				batch = addSample(batch, freeBatches, readyBatches);
+			}
+
+		} catch(InterruptedException e) {
+
+			Thread.currentThread().interrupt();
+
+		} catch(Throwable e) {
+
+			readFailure = e;
+
+		} finally {
+
+			putLastBatch(batch, freeBatches, readyBatches);
+		}
+	}
+
+	private static void putLastBatch(TrainingBatch batch, BlockingQueue<TrainingBatch> freeBatches,
+			BlockingQueue<TrainingBatch> readyBatches) {
+
+		if(Thread.currentThread().isInterrupted())
+			return;
+
+		try {
+
+			if(batch == null)
+				batch = takeEmptyBatch(freeBatches);
+
+			batch.setLast(true);
+			readyBatches.put(batch);
+
+		} catch(InterruptedException e) {
+
+			return;
+		}
+	}
+
+	private TrainingBatch addSample(TrainingBatch batch, BlockingQueue<TrainingBatch> freeBatches,
+			BlockingQueue<TrainingBatch> readyBatches) throws InterruptedException {
+
+		batch.setSize(batch.getSize() + 1);
+
+		if(batch.getSize() < batch.getCapacity())
+			return batch;
+
+		readyBatches.put(batch);
+
+		return takeEmptyBatch(freeBatches);
+	}
+
+	private static TrainingBatch takeEmptyBatch(BlockingQueue<TrainingBatch> freeBatches) throws InterruptedException {
+
+		TrainingBatch batch = freeBatches.take();
+
+		batch.setSize(0);
+		batch.setLast(false);
+
+		return batch;
+	}
+
+	/**
+	 * Seeds the generator used to shuffle records, so that the
+	 * order of training samples can be reproduced.
+	 * @param seed - the seed of the shuffle generator.
+	 */
+	public void setShuffleSeed(long seed) {
+
+		random = new SplittableRandomSource(seed);
+	}
+
+	/**
+	 * Sets the source from which each epoch splits the generator
+	 * used to shuffle records.
+	 * @param random - the source of the shuffle generators.
+	 */
+	public void setRandomSource(RandomSource random) {
+
+		this.random = random;
+	}
+
+	public int getNumberOfEpochs() {
+
+		return numberOfEpochs;
+	}
+}
@@ -0,0 +1,62 @@
+package crepes.buttr.pnut.training;
+
+/**
+ * A fixed capacity group of training samples. Batches are
+ * allocated once by the trainer and passed back and forth
+ * between the reading thread and the training thread, so the
+ * sample arrays are reused for the whole run.
+ */
+class TrainingBatch {
+
+	private double[][] inputs;
+	private double[][] targets;
+
+	private int size;
+	private boolean last;
+
+	TrainingBatch(int capacity, int numberOfInputs, int numberOfTargets) {
+
+		this.inputs = new double[capacity][numberOfInputs];
+		this.targets = new double[capacity][numberOfTargets];
+	}
+
+	double[] getInputs(int sample) {
+
+		return inputs[sample];
+	}
+
+	double[] getTargets(int sample) {
+
+		return targets[sample];
+	}
+
+	int getCapacity() {
+
+		return inputs.length;
+	}
+
+	int getSize() {
+
+		return size;
+	}
+
+	void setSize(int size) {
+
+		this.size = size;
+	}
+
+	/**
+	 * Returns whether this is the final batch of the epoch. The
+	 * final batch may hold fewer samples than the others, or
+	 * none at all.
+	 */
+	boolean isLast() {
+
+		return last;
+	}
+
+	void setLast(boolean last) {
+
+		this.last = last;
+	}
+}